@@ -0,0 +1,179 @@
+package com.kedzie.drawer;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays a drag of a drawer by its handle in a layout attached to a window, and fails if the
+ * MotionEvents of the drag, including drawing the frame each of them produces, allocate.
+ * <p>
+ * Allocations are counted for the whole process while the main thread dispatches and draws a run of
+ * moves.  The least count of a few runs is kept, so another thread allocating meanwhile doesn't fail
+ * the test.  Frames drawn by the window itself aren't counted, since the framework may allocate while
+ * drawing them, but the drag is released and the drawer left to settle so those paths run.
+ * </p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class DragAllocationTest {
+
+    private static final int HANDLE_SIZE = 50;
+    /** Moves dispatched before counting, which capture the drawer and fill caches */
+    private static final int WARMUP_MOVES = 20;
+    /** Moves dispatched by each counted run */
+    private static final int MEASURED_MOVES = 25;
+    /** Counted runs */
+    private static final int RUNS = 3;
+    /** Maximum time for the drawer to settle once released (ms) */
+    private static final long SETTLE_TIMEOUT = 5000;
+
+    @Rule
+    public final ActivityTestRule<DragTestActivity> mActivityRule =
+            new ActivityTestRule<DragTestActivity>(DragTestActivity.class);
+
+    private Instrumentation mInstrumentation;
+    private DragLayout mLayout;
+    private DraggedDrawer mDrawer;
+    private View mHandle;
+    private Canvas mCanvas;
+    private Bitmap mBitmap;
+    /** Every event of the gesture, obtained up front so the replay itself doesn't allocate */
+    private MotionEvent[] mEvents;
+    private int mAllocations = Integer.MAX_VALUE;
+    private int mDragState;
+    private boolean mDragVisible;
+    private int mState;
+
+    @Before
+    public void setUp() {
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+        final Activity activity = mActivityRule.getActivity();
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mLayout = new DragLayout(activity);
+                mDrawer = new DraggedDrawer(activity);
+                mDrawer.setDrawerType(DraggedDrawer.DRAWER_LEFT);
+                //drawing a hardware layer in software would rebuild its cache every frame
+                mDrawer.setLayerPolicy(DraggedDrawer.LAYER_NEVER);
+
+                final View content = new View(activity);
+                final int contentWidth = activity.getResources().getDisplayMetrics().widthPixels*3/4;
+                mDrawer.addView(content, new DraggedDrawer.LayoutParams(contentWidth, ViewGroup.LayoutParams.MATCH_PARENT));
+                mDrawer.setContent(content);
+                mHandle = new View(activity);
+                mDrawer.addView(mHandle, new DraggedDrawer.LayoutParams(HANDLE_SIZE, HANDLE_SIZE));
+                mDrawer.setHandle(mHandle);
+
+                mLayout.addView(mDrawer, new DragLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                        ViewGroup.LayoutParams.MATCH_PARENT));
+                activity.setContentView(mLayout);
+            }
+        });
+        //attached, measured and laid out
+        mInstrumentation.waitForIdleSync();
+
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mBitmap = Bitmap.createBitmap(mLayout.getWidth(), mLayout.getHeight(), Bitmap.Config.ARGB_8888);
+                mCanvas = new Canvas(mBitmap);
+
+                final int x = mDrawer.getLeft() + mHandle.getLeft() + mHandle.getWidth()/2;
+                final int y = mDrawer.getTop() + mHandle.getTop() + mHandle.getHeight()/2;
+                //the warmup moves cross the touch slop twice over
+                final int step = ViewConfiguration.get(activity).getScaledTouchSlop()*2/WARMUP_MOVES + 1;
+                final long downTime = SystemClock.uptimeMillis();
+                final int moves = WARMUP_MOVES + RUNS*MEASURED_MOVES;
+                mEvents = new MotionEvent[moves + 2];
+                mEvents[0] = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0);
+                for(int i=1; i<=moves; i++)
+                    mEvents[i] = MotionEvent.obtain(downTime, downTime + i*16, MotionEvent.ACTION_MOVE, x + i*step, y, 0);
+                mEvents[moves+1] = MotionEvent.obtain(downTime, downTime + (moves+1)*16, MotionEvent.ACTION_UP,
+                        x + moves*step, y, 0);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        if(mEvents!=null) {
+            for(MotionEvent event : mEvents)
+                event.recycle();
+        }
+        if(mBitmap!=null)
+            mBitmap.recycle();
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void dragDoesNotAllocatePerMotionEvent() {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                int index = 0;
+                for(; index<=WARMUP_MOVES; index++)
+                    dispatch(mEvents[index]);
+                mDragState = mDrawer.getDrawerState();
+
+                //the allocation counters are deprecated, but still the only per object count of the runtime
+                Debug.startAllocCounting();
+                for(int run=0; run<RUNS; run++) {
+                    Debug.resetGlobalAllocCount();
+                    for(int i=0; i<MEASURED_MOVES; i++, index++)
+                        dispatch(mEvents[index]);
+                    mAllocations = Math.min(mAllocations, Debug.getGlobalAllocCount());
+                }
+                Debug.stopAllocCounting();
+                mDragVisible = mLayout.isDrawerVisible(mDrawer);
+
+                dispatch(mEvents[index]);
+            }
+        });
+        assertEquals("drawer wasn't captured by the warmup moves", DraggedDrawer.STATE_DRAGGING, mDragState);
+        assertTrue("drawer didn't follow the drag", mDragVisible);
+        assertEquals("allocations during " + MEASURED_MOVES + " drag events", 0, mAllocations);
+
+        final long deadline = SystemClock.uptimeMillis() + SETTLE_TIMEOUT;
+        while(drawerState()!=DraggedDrawer.STATE_IDLE && SystemClock.uptimeMillis()<deadline)
+            SystemClock.sleep(16);
+        assertEquals("drawer didn't settle once released", DraggedDrawer.STATE_IDLE, drawerState());
+    }
+
+    private void dispatch(MotionEvent event) {
+        mLayout.dispatchTouchEvent(event);
+        mLayout.draw(mCanvas);
+    }
+
+    /**
+     * Read the drawer state on the main thread
+     */
+    private int drawerState() {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mState = mDrawer.getDrawerState();
+            }
+        });
+        return mState;
+    }
+}
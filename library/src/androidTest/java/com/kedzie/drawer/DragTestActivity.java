@@ -0,0 +1,9 @@
+package com.kedzie.drawer;
+
+import android.app.Activity;
+
+/**
+ * Empty activity which hosts the layouts under test, so they are attached to a window
+ */
+public class DragTestActivity extends Activity {
+}
@@ -0,0 +1,164 @@
+package com.kedzie.drawer;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Switches the keep measured content mode of a closed left drawer at runtime, and checks the content
+ * is hidden the right way while the handle stays where it was.
+ */
+@RunWith(AndroidJUnit4.class)
+public class KeepContentMeasuredTest {
+
+    private static final int HANDLE_SIZE = 50;
+
+    @Rule
+    public final ActivityTestRule<DragTestActivity> mActivityRule =
+            new ActivityTestRule<DragTestActivity>(DragTestActivity.class);
+
+    private Instrumentation mInstrumentation;
+    private Activity mActivity;
+    private View mContent;
+    private View mHandle;
+
+    private int mHandleLeft;
+    private int mVisibility;
+    private int mLeft;
+    private int mShownLeft;
+    private int mHiddenLeft;
+    private int mContentWidth;
+    private boolean mDrawerVisible;
+
+    @Before
+    public void setUp() {
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+        mActivity = mActivityRule.getActivity();
+    }
+
+    @Test
+    public void closedLeftDrawerKeepsItsHandleAtTheEdge() {
+        final DragLayout[] layout = new DragLayout[1];
+        final DraggedDrawer[] drawer = new DraggedDrawer[1];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                layout[0] = new DragLayout(mActivity);
+                drawer[0] = new DraggedDrawer(mActivity);
+                drawer[0].setDrawerType(DraggedDrawer.DRAWER_LEFT);
+                mContent = new View(mActivity);
+                final int contentWidth = mActivity.getResources().getDisplayMetrics().widthPixels/2;
+                drawer[0].addView(mContent, new DraggedDrawer.LayoutParams(contentWidth, ViewGroup.LayoutParams.MATCH_PARENT));
+                drawer[0].setContent(mContent);
+                mHandle = new View(mActivity);
+                drawer[0].addView(mHandle, new DraggedDrawer.LayoutParams(HANDLE_SIZE, HANDLE_SIZE));
+                drawer[0].setHandle(mHandle);
+                layout[0].addView(drawer[0], new DragLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                        ViewGroup.LayoutParams.MATCH_PARENT));
+                mActivity.setContentView(layout[0]);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+        final int handleLeft = readDrawer(layout[0], drawer[0]);
+        assertEquals(View.GONE, mVisibility);
+
+        setKeepContentMeasured(drawer[0], true);
+        assertEquals("handle moved once the content was kept measured", handleLeft, readDrawer(layout[0], drawer[0]));
+        assertEquals(View.INVISIBLE, mVisibility);
+        assertFalse("closed drawer was shown", mDrawerVisible);
+
+        setKeepContentMeasured(drawer[0], false);
+        assertEquals("handle moved once the content was no longer kept measured", handleLeft,
+                readDrawer(layout[0], drawer[0]));
+        assertEquals(View.GONE, mVisibility);
+        assertFalse("closed drawer was shown", mDrawerVisible);
+    }
+
+    @Test
+    public void closedLeftLinearDrawerIsOffsetByItsContent() {
+        final DraggedDrawerLL[] drawer = new DraggedDrawerLL[1];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                drawer[0] = new DraggedDrawerLL(mActivity, null);
+                drawer[0].setDrawerType(DraggedDrawerLL.DRAWER_LEFT);
+                mContent = new View(mActivity);
+                drawer[0].setContent(mContent);
+                mHandle = new View(mActivity);
+                mHandle.setLayoutParams(new LinearLayout.LayoutParams(HANDLE_SIZE, HANDLE_SIZE));
+                drawer[0].setHandle(mHandle);
+                final FrameLayout host = new FrameLayout(mActivity);
+                host.addView(drawer[0], new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                        ViewGroup.LayoutParams.MATCH_PARENT));
+                mActivity.setContentView(host);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+        //close the drawer once its content has been laid out
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                drawer[0].setContentVisibility(View.GONE);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mContentWidth = mContent.getWidth();
+                mLeft = drawer[0].getLeft();
+                drawer[0].setKeepContentMeasured(true);
+                mShownLeft = drawer[0].getLeft();
+                mVisibility = mContent.getVisibility();
+                drawer[0].setKeepContentMeasured(false);
+                mHiddenLeft = drawer[0].getLeft();
+            }
+        });
+        assertTrue("content wasn't laid out", mContentWidth>0);
+        assertEquals(View.INVISIBLE, mVisibility);
+        assertEquals("drawer wasn't offset by its content when it was kept measured", mLeft-mContentWidth, mShownLeft);
+        assertEquals("drawer didn't return once the content was hidden", mLeft, mHiddenLeft);
+    }
+
+    private void setKeepContentMeasured(final DraggedDrawer drawer, final boolean keep) {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                drawer.setKeepContentMeasured(keep);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+    }
+
+    /**
+     * Read the state of a drawer on the main thread
+     * @return left of the handle in the layout, including translation
+     */
+    private int readDrawer(final DragLayout layout, final DraggedDrawer drawer) {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mHandleLeft = drawer.getLeft() + (int) drawer.getTranslationX() + mHandle.getLeft();
+                mVisibility = mContent.getVisibility();
+                mDrawerVisible = layout.isDrawerVisible(drawer);
+            }
+        });
+        return mHandleLeft;
+    }
+}
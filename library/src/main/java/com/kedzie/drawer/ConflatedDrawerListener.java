@@ -0,0 +1,194 @@
+package com.kedzie.drawer;
+
+import android.view.View;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link DragLayout.DrawerListener} which forwards events to another listener on an {@link Executor}.
+ * <p>
+ * Slide events are conflated: only the latest offset of each drawer is kept, so a slow listener
+ * never builds a backlog of stale offsets.  Opened, opening, closed and state events are queued and
+ * delivered in order, each preceded by the latest slide of its drawer.  A single drain task runs on
+ * the executor at a time, so the listener is never called concurrently even on a pool.
+ * </p>
+ */
+class ConflatedDrawerListener implements DragLayout.DrawerListener {
+
+    private static final int OPENED = 0;
+    private static final int OPENING = 1;
+    private static final int CLOSED = 2;
+    private static final int STATE = 3;
+    private static final int SLIDE = 4;
+
+    /**
+     * Event which must be delivered
+     */
+    private static final class Event {
+        final int type;
+        final View drawer;
+        final float offset;
+        final int state;
+
+        Event(int type, View drawer, float offset, int state) {
+            this.type = type;
+            this.drawer = drawer;
+            this.offset = offset;
+            this.state = state;
+        }
+    }
+
+    private final DragLayout.DrawerListener mTarget;
+    private final Executor mExecutor;
+
+    /** Guards all the state below */
+    private final Object mLock = new Object();
+    /** Ordered events waiting for delivery */
+    private final ArrayDeque<Event> mQueue = new ArrayDeque<Event>();
+    /** Drawers with a slide waiting for delivery, and their latest offset */
+    private View[] mSlideDrawers = new View[2];
+    private float[] mSlideOffsets = new float[2];
+    private int mSlideCount;
+    /** Whether the drain task is queued or running on the executor */
+    private boolean mDraining;
+
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * @param target    listener to call on the executor
+     * @param executor  executor which runs the listener
+     */
+    ConflatedDrawerListener(DragLayout.DrawerListener target, Executor executor) {
+        mTarget = target;
+        mExecutor = executor;
+    }
+
+    @Override
+    public void onDrawerSlide(View drawerView, float slideOffset) {
+        synchronized(mLock) {
+            int index = indexOfSlide(drawerView);
+            if(index<0) {
+                if(mSlideCount==mSlideDrawers.length) {
+                    final View[] drawers = new View[mSlideCount*2];
+                    System.arraycopy(mSlideDrawers, 0, drawers, 0, mSlideCount);
+                    mSlideDrawers = drawers;
+                    final float[] offsets = new float[mSlideCount*2];
+                    System.arraycopy(mSlideOffsets, 0, offsets, 0, mSlideCount);
+                    mSlideOffsets = offsets;
+                }
+                index = mSlideCount++;
+                mSlideDrawers[index] = drawerView;
+            }
+            mSlideOffsets[index] = slideOffset;
+            scheduleLocked();
+        }
+    }
+
+    @Override
+    public void onDrawerOpened(View drawerView) {
+        enqueue(OPENED, drawerView, 0);
+    }
+
+    @Override
+    public void onDrawerOpening(View drawerView) {
+        enqueue(OPENING, drawerView, 0);
+    }
+
+    @Override
+    public void onDrawerClosed(View drawerView) {
+        enqueue(CLOSED, drawerView, 0);
+    }
+
+    @Override
+    public void onDrawerStateChanged(int newState) {
+        enqueue(STATE, null, newState);
+    }
+
+    private void enqueue(int type, View drawer, int state) {
+        synchronized(mLock) {
+            //the latest slide of the drawer goes first
+            if(drawer!=null) {
+                final int index = indexOfSlide(drawer);
+                if(index>=0)
+                    mQueue.add(new Event(SLIDE, drawer, removeSlideLocked(index), 0));
+            }
+            mQueue.add(new Event(type, drawer, 0, state));
+            scheduleLocked();
+        }
+    }
+
+    private void scheduleLocked() {
+        if(!mDraining) {
+            mDraining = true;
+            mExecutor.execute(mDrain);
+        }
+    }
+
+    /**
+     * Deliver events until none are left.  Runs on the executor.
+     */
+    private void drain() {
+        while(true) {
+            int type;
+            View drawer;
+            float offset = 0;
+            int state = 0;
+            synchronized(mLock) {
+                final Event event = mQueue.poll();
+                if(event!=null) {
+                    type = event.type;
+                    drawer = event.drawer;
+                    offset = event.offset;
+                    state = event.state;
+                } else if(mSlideCount>0) {
+                    type = SLIDE;
+                    drawer = mSlideDrawers[0];
+                    offset = removeSlideLocked(0);
+                } else {
+                    mDraining = false;
+                    return;
+                }
+            }
+            switch(type) {
+                case SLIDE:
+                    mTarget.onDrawerSlide(drawer, offset);
+                    break;
+                case OPENED:
+                    mTarget.onDrawerOpened(drawer);
+                    break;
+                case OPENING:
+                    mTarget.onDrawerOpening(drawer);
+                    break;
+                case CLOSED:
+                    mTarget.onDrawerClosed(drawer);
+                    break;
+                case STATE:
+                    mTarget.onDrawerStateChanged(state);
+                    break;
+            }
+        }
+    }
+
+    private int indexOfSlide(View drawer) {
+        for(int i=0; i<mSlideCount; i++) {
+            if(mSlideDrawers[i]==drawer)
+                return i;
+        }
+        return -1;
+    }
+
+    private float removeSlideLocked(int index) {
+        final float offset = mSlideOffsets[index];
+        final int last = --mSlideCount;
+        mSlideDrawers[index] = mSlideDrawers[last];
+        mSlideOffsets[index] = mSlideOffsets[last];
+        mSlideDrawers[last] = null;
+        return offset;
+    }
+}
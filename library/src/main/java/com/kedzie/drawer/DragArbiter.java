@@ -0,0 +1,234 @@
+package com.kedzie.drawer;
+
+import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.VelocityTrackerCompat;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+
+import static com.kedzie.drawer.DraggedDrawer.*;
+
+/**
+ * Gesture arbiter shared by all the drawers of a {@link DragLayout}.
+ * <p>
+ * Owns the only {@link VelocityTracker} and pointer state of the layout.  The target drawer
+ * is resolved once per gesture on {@link MotionEvent#ACTION_DOWN}, either as the top drawer
+ * under the touch or as an edge draggable drawer whose edge was touched.  Subsequent events
+ * only drive that drawer, so the cost of each event does not depend on the number of drawers.
+ * </p>
+ */
+class DragArbiter {
+    private static final int INVALID_POINTER = -1;
+
+    private final DragLayout mLayout;
+
+    private final int mTouchSlop;
+    private final int mEdgeSize;
+    private final float mMinVelocity;
+    private final float mMaxVelocity;
+
+    private VelocityTracker mVelocityTracker;
+    private int mActivePointerId = INVALID_POINTER;
+    /** {@link MotionEvent#getDownTime()} of the current gesture */
+    private long mDownTime;
+    private float mInitialMotionX;
+    private float mInitialMotionY;
+    private float mLastMotionX;
+    private float mLastMotionY;
+
+    /** Drawer targeted by the current gesture. <code>null</code> if none. */
+    private DraggedDrawer mTarget;
+    /** Whether the target was found by its edge rather than its bounds */
+    private boolean mEdgeTarget;
+    /** Whether the target has been captured and is following the pointer */
+    private boolean mDragging;
+
+    /**
+     * @param layout    the parent layout
+     * @param config    shared touch configuration
+     */
+    DragArbiter(DragLayout layout, DragConfig config) {
+        mLayout = layout;
+        mTouchSlop = config.touchSlop;
+        mEdgeSize = config.edgeSize;
+        mMinVelocity = config.minFlingVelocity;
+        mMaxVelocity = config.maxFlingVelocity;
+    }
+
+    /**
+     * Distance a touch can wander before we think the user is dragging
+     * @return touch slop (pixels)
+     */
+    int getTouchSlop() {
+        return mTouchSlop;
+    }
+
+    /**
+     * Size of the edge strip which starts edge drags
+     * @return edge size (pixels)
+     */
+    int getEdgeSize() {
+        return mEdgeSize;
+    }
+
+    /**
+     * Feed a touch event to the arbiter.  Called from both
+     * {@link DragLayout#onInterceptTouchEvent(MotionEvent)} and {@link DragLayout#onTouchEvent(MotionEvent)}.
+     * @param ev    the motion event
+     * @return true if a drawer is captured and the gesture should be intercepted
+     */
+    boolean processTouchEvent(MotionEvent ev) {
+        final int action = MotionEventCompat.getActionMasked(ev);
+        if (action == MotionEvent.ACTION_DOWN) {
+            //the layout feeds the same DOWN again to onTouchEvent after intercepting it
+            if (mActivePointerId != INVALID_POINTER && ev.getDownTime() == mDownTime)
+                return mDragging;
+            reset();
+        }
+        if (mVelocityTracker == null)
+            mVelocityTracker = VelocityTracker.obtain();
+        mVelocityTracker.addMovement(ev);
+
+        switch (action) {
+            case MotionEvent.ACTION_DOWN: {
+                final float x = ev.getX();
+                final float y = ev.getY();
+                mActivePointerId = MotionEventCompat.getPointerId(ev, 0);
+                mDownTime = ev.getDownTime();
+                mInitialMotionX = mLastMotionX = x;
+                mInitialMotionY = mLastMotionY = y;
+                mTarget = mLayout.findTopDrawerUnder((int) x, (int) y);
+                mEdgeTarget = false;
+                if (mTarget == null) {
+                    mTarget = mLayout.findEdgeDrawer((int) x, (int) y);
+                    mEdgeTarget = mTarget != null;
+                }
+                if (mTarget != null)
+                    mLayout.onDrawerTouched(mTarget);
+                //catch a settling drawer immediately, or one left captured by an interrupted gesture
+                if (mTarget != null && mTarget.mState != STATE_IDLE)
+                    startDrag();
+                break;
+            }
+            case MotionEventCompat.ACTION_POINTER_UP: {
+                final int actionIndex = MotionEventCompat.getActionIndex(ev);
+                if (MotionEventCompat.getPointerId(ev, actionIndex) == mActivePointerId) {
+                    final int newIndex = actionIndex == 0 ? 1 : 0;
+                    mActivePointerId = MotionEventCompat.getPointerId(ev, newIndex);
+                    mLastMotionX = MotionEventCompat.getX(ev, newIndex);
+                    mLastMotionY = MotionEventCompat.getY(ev, newIndex);
+                }
+                break;
+            }
+            case MotionEvent.ACTION_MOVE: {
+                if (mTarget == null)
+                    break;
+                final int index = MotionEventCompat.findPointerIndex(ev, mActivePointerId);
+                if (index < 0)
+                    break;
+                final float x = MotionEventCompat.getX(ev, index);
+                final float y = MotionEventCompat.getY(ev, index);
+                if (!mDragging) {
+                    final float d = openingDelta(mTarget, x - mInitialMotionX, y - mInitialMotionY);
+                    if (mEdgeTarget ? d > mTouchSlop : Math.abs(d) > mTouchSlop)
+                        startDrag();
+                }
+                if (mDragging)
+                    mLayout.dragDrawerBy(mTarget, openingDelta(mTarget, x - mLastMotionX, y - mLastMotionY));
+                mLastMotionX = x;
+                mLastMotionY = y;
+                break;
+            }
+            case MotionEvent.ACTION_UP: {
+                if (mDragging) {
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
+                    final float velocity = openingDelta(mTarget,
+                            VelocityTrackerCompat.getXVelocity(mVelocityTracker, mActivePointerId),
+                            VelocityTrackerCompat.getYVelocity(mVelocityTracker, mActivePointerId));
+                    release(Math.abs(velocity) < mMinVelocity ? 0 : velocity);
+                }
+                reset();
+                break;
+            }
+            case MotionEvent.ACTION_CANCEL: {
+                if (mDragging)
+                    release(0);
+                reset();
+                break;
+            }
+        }
+        return mDragging;
+    }
+
+    /**
+     * Abort the current gesture
+     * @param release   whether a captured drawer is released, so it settles open or closed from where it lies.
+     *                  Otherwise the caller repositions it.
+     */
+    void cancel(boolean release) {
+        if (mDragging && release)
+            release(0);
+        reset();
+    }
+
+    /**
+     * Drop the current gesture if it targets a drawer which left the layout.  The drawer isn't released.
+     * @param drawer    the removed drawer
+     */
+    void forget(DraggedDrawer drawer) {
+        if (mTarget == drawer)
+            reset();
+    }
+
+    /**
+     * Release the velocity tracker.  It is lazily reacquired on the next gesture.
+     */
+    void recycle() {
+        reset();
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    private void startDrag() {
+        mDragging = true;
+        mLayout.onDrawerCaptured(mTarget);
+    }
+
+    private void release(float velocity) {
+        mDragging = false;
+        mLayout.onDrawerReleased(mTarget, velocity);
+    }
+
+    private void reset() {
+        if (mTarget != null)
+            mLayout.onDrawerTouchEnded(mTarget);
+        mActivePointerId = INVALID_POINTER;
+        mTarget = null;
+        mEdgeTarget = false;
+        mDragging = false;
+        if (mVelocityTracker != null)
+            mVelocityTracker.clear();
+    }
+
+    /**
+     * Project a motion vector onto the opening direction of a drawer
+     * @param drawer    the drawer
+     * @param dx        horizontal component
+     * @param dy        vertical component
+     * @return component in the direction the drawer opens.  Positive values open the drawer.
+     */
+    private static float openingDelta(DraggedDrawer drawer, float dx, float dy) {
+        switch (drawer.getDrawerType()) {
+            case DRAWER_LEFT:
+                return dx;
+            case DRAWER_RIGHT:
+                return -dx;
+            case DRAWER_TOP:
+                return dy;
+            case DRAWER_BOTTOM:
+                return -dy;
+        }
+        return 0;
+    }
+}
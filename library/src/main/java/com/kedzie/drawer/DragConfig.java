@@ -0,0 +1,56 @@
+package com.kedzie.drawer;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.view.ViewConfiguration;
+
+/**
+ * Resource derived configuration shared by every {@link DragLayout}.
+ * <p>
+ * Immutable.  Built once and reused by all layouts as long as the display density doesn't change,
+ * so creating a layout, e.g. for a list row, doesn't read resources for these values again.
+ * </p>
+ */
+final class DragConfig {
+
+    /** Size of the edge strip which starts edge drags (dp) */
+    private static final int EDGE_SIZE = 20;
+
+    private static DragConfig sConfig;
+
+    /** Density the values were computed for */
+    final float density;
+    /** Distance a touch can wander before we think the user is dragging (pixels) */
+    final int touchSlop;
+    /** Size of the edge strip which starts edge drags (pixels) */
+    final int edgeSize;
+    /** Minimum fling velocity (pixels/second) */
+    final float minFlingVelocity;
+    /** Maximum fling velocity (pixels/second) */
+    final float maxFlingVelocity;
+    /** Default elevation of open drawers (pixels) */
+    final int drawerElevation;
+
+    private DragConfig(Context context) {
+        final Resources res = context.getResources();
+        final ViewConfiguration vc = ViewConfiguration.get(context);
+        density = res.getDisplayMetrics().density;
+        touchSlop = (int) (vc.getScaledTouchSlop() * (1 / DragLayout.DRAG_SENSITIVITY));
+        edgeSize = (int) (EDGE_SIZE * density + 0.5f);
+        minFlingVelocity = res.getInteger(R.integer.drawer_min_fling_velocity) * density;
+        maxFlingVelocity = vc.getScaledMaximumFlingVelocity();
+        drawerElevation = res.getDimensionPixelSize(R.dimen.drawer_elevation);
+    }
+
+    /**
+     * Get the shared configuration.  Only called from the main thread.
+     * @param context   context of the layout
+     * @return configuration for the context's display density
+     */
+    static DragConfig get(Context context) {
+        final DragConfig config = sConfig;
+        if(config!=null && config.density==context.getResources().getDisplayMetrics().density)
+            return config;
+        return sConfig = new DragConfig(context);
+    }
+}
@@ -1,28 +1,34 @@
 package com.kedzie.drawer;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Paint;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
 import android.support.v4.view.KeyEventCompat;
 import android.support.v4.view.MotionEventCompat;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewGroupCompat;
-import android.support.v4.widget.ViewDragHelper;
+import android.support.v4.widget.ScrollerCompat;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.view.accessibility.AccessibilityEvent;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
 import android.widget.RelativeLayout;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Executor;
 
 import static com.kedzie.drawer.DraggedDrawer.*;
 
@@ -31,6 +37,8 @@ import static com.kedzie.drawer.DraggedDrawer.*;
  */
 public class DragLayout extends RelativeLayout {
     private static final String TAG = "DragLayout";
+    /** Verbose logging.  Off so the touch and draw paths don't build log strings. */
+    private static final boolean DEBUG = false;
 
     /**
      * Listener for monitoring events about drawers.
@@ -93,27 +101,236 @@ public class DragLayout extends RelativeLayout {
 
     private static final int DEFAULT_SCRIM_COLOR = 0x96000000;
 
+    /** Drawers are moved by offsetting their layout bounds */
+    public static final int MOVEMENT_LAYOUT = 0;
+    /**
+     * Drawers stay laid out fully open and are moved by their translation.
+     * Positions are kept with sub-pixel precision and moving a drawer never touches its layout.
+     */
+    public static final int MOVEMENT_TRANSLATION = 1;
+
+    /** Base duration of a settle animation across the full drawer range (ms) */
+    private static final int BASE_SETTLE_DURATION = 256;
+    private static final int MAX_SETTLE_DURATION = 600;
+
+    /** Drawers settle along a fixed duration ease-out curve */
+    public static final int SETTLE_SCROLLER = 0;
+    /**
+     * Drawers settle as a critically damped spring which continues from the release velocity
+     */
+    public static final int SETTLE_SPRING = 1;
+
+    /** Time without touches or scrolling before the idle warmup restarts (ms) */
+    private static final long WARMUP_QUIET_PERIOD = 300;
+
+    /** Natural frequency of the settle spring (radians/second) */
+    private static final float SPRING_FREQUENCY = 25f;
+    /** Spring settles once within this distance of its destination (pixels) */
+    private static final float SPRING_THRESHOLD = .5f;
+
+    /** {@link DrawerListener#onDrawerSlide(View, float)} events */
+    public static final int EVENT_SLIDE = 1;
+    /** {@link DrawerListener#onDrawerOpened(View)} events */
+    public static final int EVENT_OPENED = 1<<1;
+    /** {@link DrawerListener#onDrawerOpening(View)} events */
+    public static final int EVENT_OPENING = 1<<2;
+    /** {@link DrawerListener#onDrawerClosed(View)} events */
+    public static final int EVENT_CLOSED = 1<<3;
+    /** {@link DrawerListener#onDrawerStateChanged(int)} events */
+    public static final int EVENT_STATE = 1<<4;
+    /** All events */
+    public static final int EVENT_ALL = EVENT_SLIDE | EVENT_OPENED | EVENT_OPENING | EVENT_CLOSED | EVENT_STATE;
+
+    /** Slide callbacks are dispatched for every offset change */
+    public static final int SLIDE_DISPATCH_IMMEDIATE = 0;
+    /**
+     * Slide callbacks are dispatched at most once per drawer per animation frame, with the latest offset.
+     * Open, close and state callbacks are still dispatched immediately, after any pending slide.
+     */
+    public static final int SLIDE_DISPATCH_FRAME = 1;
+
+    /** Shadows are drawn by the layout from each drawer's shadow drawable */
+    public static final int SHADOW_DRAWABLE = 0;
+    /**
+     * Shadows are cast by drawer elevation.  Falls back to {@link #SHADOW_DRAWABLE} before
+     * {@link Build.VERSION_CODES#LOLLIPOP}.
+     */
+    public static final int SHADOW_ELEVATION = 1;
+
+    /** Release the hardware layers of closed drawers.  Applied again when they move. */
+    public static final int RELEASE_LAYERS = 1;
+    /** Release the content snapshots of closed drawers.  Captured again after they next close. */
+    public static final int RELEASE_SNAPSHOTS = 2;
+    /** Release shadow drawables of closed drawers set in XML.  Loaded again when they next open. */
+    public static final int RELEASE_SHADOWS = 4;
+    /**
+     * Remove the lazily inflated content of closed drawers, see {@link DraggedDrawer#setContentFactory}.
+     * Inflated again when they next open.
+     */
+    public static final int RELEASE_CONTENT = 8;
+
+    /** Quintic ease-out used by settle animations */
+    private static final Interpolator sInterpolator = new Interpolator() {
+        public float getInterpolation(float t) {
+            t -= 1.0f;
+            return t * t * t * t * t + 1.0f;
+        }
+    };
+
     /** Current state of drawers */
     private int mDrawerState;
 
+    /** {@link #MOVEMENT_LAYOUT} or {@link #MOVEMENT_TRANSLATION} */
+    private int mMovementMode;
+
+    /** {@link #SETTLE_SCROLLER} or {@link #SETTLE_SPRING} */
+    private int mSettleMode;
+
+    /** {@link #SHADOW_DRAWABLE} or {@link #SHADOW_ELEVATION} */
+    private int mShadowMode;
+    /** Elevation of open drawers in {@link #SHADOW_ELEVATION} mode (pixels) */
+    private int mDrawerElevation;
+
+    /** {@link #SLIDE_DISPATCH_IMMEDIATE} or {@link #SLIDE_DISPATCH_FRAME} */
+    private int mSlideDispatch;
+    /** Minimum offset change between two slide callbacks of a drawer */
+    private float mSlideEpsilon;
+    /** Whether {@link #mSlideFrame} is posted */
+    private boolean mSlideFramePosted;
+    /** Whether the settler is advancing drawers.  Slide callbacks are then dispatched at the end of its frame. */
+    private boolean mInSettleFrame;
+    /** Whether closed drawers are prewarmed when a gesture starts on their handle or edge */
+    private boolean mPrewarmOnTouch = true;
+
+    /** Dispatches the pending slide callbacks of the frame */
+    private final Runnable mSlideFrame = new Runnable() {
+        @Override
+        public void run() {
+            mSlideFramePosted = false;
+            for(int i=0; i<mHolderCount; i++) {
+                if(mHolders[i].slidePending)
+                    dispatchSlide(mHolders[i]);
+            }
+        }
+    };
+
     private int mScrimColor;
+    /** Offset of the most visible drawer, from 0-1 */
     private float mScrimOpacity;
+    /** Drawer which sets {@link #mScrimOpacity}. <code>null</code> if all drawers are closed. */
+    private DraggedDrawer mScrimDrawer;
+    /** Quantized scrim alpha last applied to {@link #mScrimPaint} */
+    private int mScrimAlpha;
+    /** Whether the scrim was already drawn during the current draw pass */
+    private boolean mScrimDrawn;
     private Paint mScrimPaint = new Paint();
 
+    /** Listener set by {@link #setDrawerListener(DrawerListener)} */
     private DrawerListener mListener;
+    /** All subscribed listeners, including {@link #mListener} */
+    private final ListenerRegistry<DrawerListener> mListeners = new ListenerRegistry<DrawerListener>();
     private boolean mInLayout;
+    /** A layout was requested while drawers were moving. Flushed when they become idle. */
+    private boolean mLayoutPending;
     private boolean mFirstLayout=true;
     private float mInitialMotionX;
     private float mInitialMotionY;
     private float mLargestDx;
     private float mLargestDy;
 
-    private float minFlingVelocity;
+    /** Single gesture arbiter for all drawers */
+    private DragArbiter mArbiter;
+
+    /** Regions which can start a drawer interaction */
+    private TouchRegionIndex mTouchRegions;
+
+    /** Advances settling drawers each animation frame */
+    private DrawerSettler mSettler;
+    /** Warms up closed drawers in main thread idle time */
+    private IdleWarmer mWarmer;
+    /** Whether closed drawers are warmed up while the main thread is idle */
+    private boolean mIdleWarmup;
+    /** Whether the idle warmup inflates lazy content */
+    private boolean mIdleWarmupInflate;
+    /** Whether a touch gesture is in progress.  The warmup doesn't run during gestures. */
+    private boolean mInGesture;
+    /** Uptime of the last gesture end or scroll, which starts the warmup quiet period (ms) */
+    private long mLastActivityTime;
+    /** Whether {@link #mWarmerRestart} is posted */
+    private boolean mWarmerRestartPosted;
+
+    /** Restarts the warmup once the quiet period has passed and the drawers are idle */
+    private final Runnable mWarmerRestart = new Runnable() {
+        @Override
+        public void run() {
+            mWarmerRestartPosted = false;
+            if(mInGesture)
+                return;
+            final long quiet = SystemClock.uptimeMillis()-mLastActivityTime;
+            if(quiet<WARMUP_QUIET_PERIOD)
+                postWarmerRestart(WARMUP_QUIET_PERIOD-quiet);
+            else if(getDrawerState()!=STATE_IDLE)
+                postWarmerRestart(WARMUP_QUIET_PERIOD);
+            else
+                updateWarmer();
+        }
+    };
+
+    /** Defers the warmup while children scroll, e.g. a list which is still flinging */
+    private final ViewTreeObserver.OnScrollChangedListener mScrollListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            deferWarmer();
+        }
+    };
+    /** Whether opening drawers draw a snapshot of their content until they are idle */
+    private boolean mSnapshotMode;
+    /** Maximum memory used by the snapshots of all drawers (bytes) */
+    private int mSnapshotBudget = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory()/16);
+    /** Mask of <code>RELEASE_*</code> flags released by trim memory signals */
+    private int mTrimResources = RELEASE_LAYERS | RELEASE_SNAPSHOTS | RELEASE_SHADOWS;
+    /** Estimated memory released by the last trim (bytes) */
+    private long mLastReleasedBytes;
+
+    /** Index of this layout in {@link TrimCallbacks}.  -1 while not registered. */
+    int mTrimIndex = -1;
+
+    /** Maximum number of drawers in one layout, bounded by {@link #mVisibleMask} */
+    private static final int MAX_DRAWERS = 64;
+
+    /**
+     * Each drawer has its own settle state.  Dense, each drawer stores its index in
+     * {@link DraggedDrawer#mSlot}.
+     */
+    private DrawerHolder[] mHolders = new DrawerHolder[4];
+    private int mHolderCount;
+    /** Bit per slot of {@link #mHolders}, set while the drawer is partially or fully open */
+    private long mVisibleMask;
+
+    /** Listener set with {@link #setOnHierarchyChangeListener(OnHierarchyChangeListener)}.  Maybe <code>null</code> */
+    private OnHierarchyChangeListener mHierarchyListener;
 
-    private ViewDragHelper mEdgeDragHelper;
+    /**
+     * Keeps {@link #mHolders} in sync with the children, then forwards to {@link #mHierarchyListener}.
+     * <code>onViewAdded</code> and <code>onViewRemoved</code> are only public API from API 23.
+     */
+    private final OnHierarchyChangeListener mDrawerRegistrar = new OnHierarchyChangeListener() {
+        @Override
+        public void onChildViewAdded(View parent, View child) {
+            if(child instanceof DraggedDrawer)
+                addDrawer((DraggedDrawer) child);
+            if(mHierarchyListener!=null)
+                mHierarchyListener.onChildViewAdded(parent, child);
+        }
 
-    /** Each drawer has its own ViewDragHelper and DragCallback */
-    private Map<DraggedDrawer, DrawerHolder> mDrawers = new HashMap<DraggedDrawer, DrawerHolder>();
+        @Override
+        public void onChildViewRemoved(View parent, View child) {
+            if(child instanceof DraggedDrawer)
+                removeDrawer((DraggedDrawer) child);
+            if(mHierarchyListener!=null)
+                mHierarchyListener.onChildViewRemoved(parent, child);
+        }
+    };
 
     public DragLayout(Context context) {
         this(context, null);
@@ -125,20 +342,26 @@ public class DragLayout extends RelativeLayout {
 
     public DragLayout(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
+        final DragConfig config = DragConfig.get(context);
 
-        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.Drawer, 0, 0);
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.DrawerLayout, 0, 0);
         try {
             mScrimColor = a.getColor(R.styleable.DrawerLayout_scrim_color, DEFAULT_SCRIM_COLOR);
+            mMovementMode = a.getInt(R.styleable.DrawerLayout_movement_mode, MOVEMENT_LAYOUT);
+            mSettleMode = a.getInt(R.styleable.DrawerLayout_settle_mode, SETTLE_SCROLLER);
+            mShadowMode = a.getInt(R.styleable.DrawerLayout_shadow_mode, SHADOW_DRAWABLE);
+            mDrawerElevation = a.getDimensionPixelSize(R.styleable.DrawerLayout_drawer_elevation, config.drawerElevation);
+            mSlideDispatch = a.getInt(R.styleable.DrawerLayout_slide_dispatch, SLIDE_DISPATCH_IMMEDIATE);
+            mSlideEpsilon = a.getFloat(R.styleable.DrawerLayout_slide_epsilon, 0f);
         } finally {
             a.recycle();
         }
 
-        minFlingVelocity = getResources().getInteger(R.integer.drawer_min_fling_velocity)
-                * getResources().getDisplayMetrics().density;
-
-        mEdgeDragHelper = ViewDragHelper.create(this, DRAG_SENSITIVITY, new EdgeCallback());
-        mEdgeDragHelper.setMinVelocity(minFlingVelocity);
-        mEdgeDragHelper.setEdgeTrackingEnabled(ViewDragHelper.EDGE_ALL);
+        mArbiter = new DragArbiter(this, config);
+        mTouchRegions = new TouchRegionIndex(this, mArbiter.getEdgeSize());
+        mSettler = new DrawerSettler(this);
+        mWarmer = new IdleWarmer(this);
+        super.setOnHierarchyChangeListener(mDrawerRegistrar);
 
         // So that we can catch the back button
         setFocusableInTouchMode(true);
@@ -147,12 +370,514 @@ public class DragLayout extends RelativeLayout {
 
     /**
      * Set a listener to be notified of drawer events.
+     * Replaces the listener previously set by this method.
      *
-     * @param listener Listener to notify when drawer events occur
+     * @param listener Listener to notify when drawer events occur, or <code>null</code>
      * @see DrawerListener
+     * @see #addDrawerListener(DrawerListener, int)
      */
     public void setDrawerListener(DrawerListener listener) {
+        if(mListener!=null)
+            mListeners.remove(mListener);
         mListener = listener;
+        if(listener!=null)
+            mListeners.add(listener, EVENT_ALL);
+    }
+
+    /**
+     * Subscribe a listener to all drawer events
+     * @param listener  the listener
+     */
+    public void addDrawerListener(DrawerListener listener) {
+        addDrawerListener(listener, EVENT_ALL);
+    }
+
+    /**
+     * Subscribe a listener to some drawer events.  Slide events, which are dispatched
+     * every frame while a drawer moves, only reach listeners which asked for them.
+     * Subscribing a listener again replaces its events.
+     * @param listener  the listener
+     * @param events    mask of {@link #EVENT_SLIDE}, {@link #EVENT_OPENED}, {@link #EVENT_OPENING},
+     *                  {@link #EVENT_CLOSED} and {@link #EVENT_STATE}
+     */
+    public void addDrawerListener(DrawerListener listener, int events) {
+        mListeners.add(listener, events);
+    }
+
+    /**
+     * Subscribe a listener to some drawer events, delivered on an {@link Executor} instead of the
+     * main thread.  Meant for listeners which do expensive work as drawers move.
+     * <p>
+     * Slide events are conflated to the latest offset of each drawer, so a slow listener never falls
+     * behind.  Opened, opening, closed and state events are all delivered in order, each after the latest
+     * slide of its drawer.  The listener is never called concurrently.  Events already handed to the
+     * executor may still be delivered after the listener is removed.
+     * </p>
+     * @param listener  the listener
+     * @param events    mask of {@link #EVENT_SLIDE}, {@link #EVENT_OPENED}, {@link #EVENT_OPENING},
+     *                  {@link #EVENT_CLOSED} and {@link #EVENT_STATE}
+     * @param executor  executor which runs the listener
+     */
+    public void addDrawerListener(DrawerListener listener, int events, Executor executor) {
+        mListeners.add(listener, new ConflatedDrawerListener(listener, executor), events);
+    }
+
+    /**
+     * Unsubscribe a listener
+     * @param listener  the listener
+     */
+    public void removeDrawerListener(DrawerListener listener) {
+        if(listener==mListener)
+            mListener = null;
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Set how drawers are moved.
+     * {@link #MOVEMENT_LAYOUT} offsets the drawer bounds by whole pixels.
+     * {@link #MOVEMENT_TRANSLATION} only updates the drawer's translation, which is applied by the
+     * renderer without a layout or re-record of the parent.
+     * @param mode  {@link #MOVEMENT_LAYOUT} or {@link #MOVEMENT_TRANSLATION}
+     */
+    public void setMovementMode(int mode) {
+        if(mode==mMovementMode)
+            return;
+        mMovementMode = mode;
+        for(int i=0; i<mHolderCount; i++) {
+            final DraggedDrawer drawer = mHolders[i].drawer;
+            ViewCompat.setTranslationX(drawer, 0);
+            ViewCompat.setTranslationY(drawer, 0);
+        }
+        requestLayout();
+    }
+
+    /**
+     * How drawers are moved
+     * @return {@link #MOVEMENT_LAYOUT} or {@link #MOVEMENT_TRANSLATION}
+     */
+    public int getMovementMode() {
+        return mMovementMode;
+    }
+
+    /**
+     * Set how drawers animate to their destination when released or opened/closed.
+     * Takes effect for the next settle animation.
+     * @param mode  {@link #SETTLE_SCROLLER} or {@link #SETTLE_SPRING}
+     */
+    public void setSettleMode(int mode) {
+        mSettleMode = mode;
+    }
+
+    /**
+     * How drawers animate to their destination
+     * @return {@link #SETTLE_SCROLLER} or {@link #SETTLE_SPRING}
+     */
+    public int getSettleMode() {
+        return mSettleMode;
+    }
+
+    /**
+     * Set how drawer shadows are rendered.
+     * {@link #SHADOW_ELEVATION} lets the renderer cast the shadow from the drawer content, so moving a
+     * drawer doesn't re-record the layout.  It is only available from {@link Build.VERSION_CODES#LOLLIPOP},
+     * older platforms keep drawing the shadow drawables.
+     * @param mode  {@link #SHADOW_DRAWABLE} or {@link #SHADOW_ELEVATION}
+     */
+    public void setShadowMode(int mode) {
+        if(mode==mShadowMode)
+            return;
+        mShadowMode = mode;
+        for(int i=0; i<mHolderCount; i++)
+            applyShadowMode(mHolders[i]);
+        invalidate();
+    }
+
+    /**
+     * How drawer shadows are rendered
+     * @return {@link #SHADOW_DRAWABLE} or {@link #SHADOW_ELEVATION}
+     */
+    public int getShadowMode() {
+        return mShadowMode;
+    }
+
+    /**
+     * Set the elevation of open drawers in {@link #SHADOW_ELEVATION} mode
+     * @param elevation elevation (pixels)
+     */
+    public void setDrawerElevation(int elevation) {
+        mDrawerElevation = elevation;
+        for(int i=0; i<mHolderCount; i++)
+            applyShadowMode(mHolders[i]);
+    }
+
+    /**
+     * Elevation of open drawers in {@link #SHADOW_ELEVATION} mode
+     * @return elevation (pixels)
+     */
+    public int getDrawerElevation() {
+        return mDrawerElevation;
+    }
+
+    private boolean isElevationShadow() {
+        return mShadowMode==SHADOW_ELEVATION && Build.VERSION.SDK_INT>=Build.VERSION_CODES.LOLLIPOP;
+    }
+
+    private void applyShadowMode(DrawerHolder holder) {
+        final DraggedDrawer drawer = holder.drawer;
+        if(isElevationShadow()) {
+            ElevationShadow.apply(drawer);
+            ViewCompat.setElevation(drawer, getDragLayoutParams(drawer).onScreen>0 ? mDrawerElevation : 0);
+        } else {
+            if(Build.VERSION.SDK_INT>=Build.VERSION_CODES.LOLLIPOP)
+                ElevationShadow.clear(drawer);
+            updateShadow(holder, getDragLayoutParams(drawer).onScreen);
+        }
+    }
+
+    /**
+     * Set how often slide callbacks are dispatched.
+     * {@link #SLIDE_DISPATCH_FRAME} coalesces all the offset changes of a drawer within a frame into a
+     * single callback, so expensive listeners don't run more often than frames are drawn.
+     * @param mode  {@link #SLIDE_DISPATCH_IMMEDIATE} or {@link #SLIDE_DISPATCH_FRAME}
+     */
+    public void setSlideDispatchMode(int mode) {
+        if(mode==mSlideDispatch)
+            return;
+        mSlideDispatch = mode;
+        if(mode==SLIDE_DISPATCH_IMMEDIATE)
+            flushSlideFrame();
+    }
+
+    /**
+     * Dispatch the pending slide callbacks now, removing the posted frame callback
+     */
+    private void flushSlideFrame() {
+        if(mSlideFramePosted)
+            removeCallbacks(mSlideFrame);
+        mSlideFrame.run();
+    }
+
+    /**
+     * Called by the {@link DrawerSettler} before it advances the drawers of a frame
+     */
+    void beginSettleFrame() {
+        mInSettleFrame = true;
+    }
+
+    /**
+     * Called by the {@link DrawerSettler} once it advanced the drawers of a frame.
+     * Offsets set by the settler are dispatched in the same frame instead of trailing it by one.
+     */
+    void endSettleFrame() {
+        mInSettleFrame = false;
+        if(mSlideDispatch==SLIDE_DISPATCH_FRAME)
+            flushSlideFrame();
+    }
+
+    /**
+     * How often slide callbacks are dispatched
+     * @return {@link #SLIDE_DISPATCH_IMMEDIATE} or {@link #SLIDE_DISPATCH_FRAME}
+     */
+    public int getSlideDispatchMode() {
+        return mSlideDispatch;
+    }
+
+    /**
+     * Set the minimum offset change between two slide callbacks of a drawer.
+     * Reaching fully open or closed is always dispatched.
+     * @param epsilon   minimum change, from 0-1.  0 dispatches every change.
+     */
+    public void setSlideEpsilon(float epsilon) {
+        mSlideEpsilon = epsilon;
+    }
+
+    /**
+     * Prewarm closed drawers when a gesture starts on their handle or edge.  The content is made visible
+     * but transparent, so it is measured, laid out and recorded while the touch slop is crossed instead of
+     * on the first drag frame.  A gesture which ends without dragging the drawer hides the content again.
+     * @param prewarm   whether to prewarm drawers on touch.  Enabled by default.
+     */
+    public void setPrewarmOnTouch(boolean prewarm) {
+        mPrewarmOnTouch = prewarm;
+    }
+
+    /**
+     * Whether closed drawers are prewarmed when a gesture starts on their handle or edge
+     * @return true if drawers are prewarmed
+     */
+    public boolean isPrewarmOnTouch() {
+        return mPrewarmOnTouch;
+    }
+
+    /**
+     * Warm up closed drawers while the main thread is idle.  Drawers are prewarmed one at a time, see
+     * {@link #setPrewarmOnTouch(boolean)}, so opening them later doesn't pay for measuring, laying out and
+     * recording their content.  Warming stops as soon as a touch arrives or a view in the window scrolls, and
+     * resumes once there has been no touch or scrolling for a short quiet period and the drawers are idle.
+     * Drawers whose lazy content isn't inflated yet are skipped, see {@link #setIdleWarmupInflate(boolean)}.
+     * @param warmup    whether to warm up drawers.  Disabled by default.
+     */
+    public void setIdleWarmup(boolean warmup) {
+        mIdleWarmup = warmup;
+        updateWarmer();
+    }
+
+    /**
+     * Whether closed drawers are warmed up while the main thread is idle
+     * @return true if drawers are warmed up
+     */
+    public boolean isIdleWarmup() {
+        return mIdleWarmup;
+    }
+
+    /**
+     * Set the time budget of each idle slice used to warm up drawers.  A slice only starts warming
+     * another drawer while it is within the budget.
+     * <p>
+     * The budget only bounds the warmer's own bookkeeping in the idle slice.  The measure, layout and draw of
+     * the prewarmed content happen in the next frame and aren't covered by it.
+     * </p>
+     * @param millis    budget (ms)
+     */
+    public void setIdleWarmupBudget(long millis) {
+        mWarmer.setBudget(millis);
+    }
+
+    /**
+     * Time budget of each idle slice used to warm up drawers
+     * @return budget (ms)
+     */
+    public long getIdleWarmupBudget() {
+        return mWarmer.getBudget();
+    }
+
+    /**
+     * Let the idle warmup and snapshot capture inflate lazy content.  This gives up the start up
+     * saving of lazy content for a faster first opening.
+     * @param inflate   whether lazy content is inflated in idle time.  Disabled by default.
+     */
+    public void setIdleWarmupInflate(boolean inflate) {
+        mIdleWarmupInflate = inflate;
+        updateWarmer();
+    }
+
+    /**
+     * Whether the idle warmup and snapshot capture inflate lazy content
+     * @return true if lazy content is inflated in idle time
+     */
+    public boolean isIdleWarmupInflate() {
+        return mIdleWarmupInflate;
+    }
+
+    /**
+     * Has a drawer's content been measured, laid out and drawn, either by the idle warmup or
+     * by being opened?
+     * @param drawer    the drawer
+     * @return true if the drawer is warm
+     */
+    public boolean isDrawerWarm(DraggedDrawer drawer) {
+        final DrawerHolder holder = getDrawerHolder(drawer);
+        return holder!=null && holder.warm;
+    }
+
+    /**
+     * Draw a bitmap snapshot of the content of a drawer while it opens, until it is idle and its content is laid out.
+     * The first frames of the open gesture then don't wait for the content to be measured, laid out and recorded.
+     * <p>
+     * Snapshots are captured in main thread idle time while drawers are closed, and recaptured after the content
+     * requests a layout or the drawer was opened.  Other changes must be reported with
+     * {@link DraggedDrawer#invalidateSnapshot()}.  Content which isn't drawn in software, e.g. a
+     * {@link android.view.TextureView}, is missing from the snapshot.  Lazy content is only captured once it
+     * has been inflated, unless {@link #setIdleWarmupInflate(boolean)} is set.
+     * </p>
+     * @param snapshots whether to use snapshots.  Disabled by default.
+     * @see #setSnapshotBudget(int)
+     */
+    public void setSnapshotMode(boolean snapshots) {
+        mSnapshotMode = snapshots;
+        for(int i=0; i<mHolderCount; i++) {
+            mHolders[i].snapshotDenied = false;
+            if(!snapshots)
+                mHolders[i].drawer.releaseSnapshot();
+        }
+        updateWarmer();
+    }
+
+    /**
+     * Whether opening drawers draw a snapshot of their content
+     * @return true in snapshot mode
+     */
+    public boolean isSnapshotMode() {
+        return mSnapshotMode;
+    }
+
+    /**
+     * Set the maximum memory used by the snapshots of all drawers.  Drawers whose snapshot doesn't
+     * fit open with their live content.  Defaults to 1/16 of the maximum heap size.
+     * @param bytes budget (bytes)
+     */
+    public void setSnapshotBudget(int bytes) {
+        mSnapshotBudget = bytes;
+        for(int i=0; i<mHolderCount; i++)
+            mHolders[i].snapshotDenied = false;
+        updateWarmer();
+    }
+
+    /**
+     * Maximum memory used by the snapshots of all drawers
+     * @return budget (bytes)
+     */
+    public int getSnapshotBudget() {
+        return mSnapshotBudget;
+    }
+
+    /**
+     * Set which resources of closed drawers are released when the system asks the app to trim memory.
+     * From {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} all of them but {@link #RELEASE_CONTENT} are released.
+     * {@link #RELEASE_CONTENT} is only applied from {@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN} and on
+     * {@link ComponentCallbacks2#onLowMemory()}.
+     * @param resources mask of {@link #RELEASE_LAYERS}, {@link #RELEASE_SNAPSHOTS}, {@link #RELEASE_SHADOWS}
+     *                  and {@link #RELEASE_CONTENT}.  Defaults to all but {@link #RELEASE_CONTENT}.
+     */
+    public void setTrimResources(int resources) {
+        mTrimResources = resources;
+    }
+
+    /**
+     * Which resources of closed drawers are released when the system asks the app to trim memory
+     * @return mask of <code>RELEASE_*</code> flags
+     */
+    public int getTrimResources() {
+        return mTrimResources;
+    }
+
+    /**
+     * Release resources of the drawers which are closed and idle.  They are rebuilt lazily when needed.
+     * Released drawers are skipped by the idle warmup and snapshots until they are opened again.
+     * @param resources mask of {@link #RELEASE_LAYERS}, {@link #RELEASE_SNAPSHOTS}, {@link #RELEASE_SHADOWS}
+     *                  and {@link #RELEASE_CONTENT}
+     * @return estimated memory released (bytes).  Released view trees aren't counted.
+     */
+    public long releaseClosedDrawers(int resources) {
+        mWarmer.stop();
+        long bytes = 0;
+        for(int i=0; i<mHolderCount; i++) {
+            final DrawerHolder holder = mHolders[i];
+            final DraggedDrawer drawer = holder.drawer;
+            if(drawer.mState!=STATE_IDLE || getDragLayoutParams(drawer).onScreen!=0f || drawer.isPrewarming())
+                continue;
+            holder.trimmed = true;
+            if((resources & RELEASE_LAYERS)!=0)
+                bytes += drawer.releaseLayer();
+            if((resources & RELEASE_SNAPSHOTS)!=0)
+                bytes += drawer.releaseSnapshot();
+            if((resources & RELEASE_SHADOWS)!=0)
+                bytes += drawer.releaseShadow();
+            if((resources & RELEASE_CONTENT)!=0 && drawer.releaseContent())
+                holder.warm = false;
+        }
+        if(DEBUG)
+            Log.v(TAG, "Released " + bytes + " bytes from closed drawers");
+        mLastReleasedBytes = bytes;
+        updateWarmer();
+        return bytes;
+    }
+
+    /**
+     * Estimated memory released by the last trim, either requested by the system or by
+     * {@link #releaseClosedDrawers(int)}
+     * @return memory released (bytes)
+     */
+    public long getLastReleasedBytes() {
+        return mLastReleasedBytes;
+    }
+
+    /**
+     * Start or stop the {@link IdleWarmer} for the current settings
+     */
+    private void updateWarmer() {
+        if((mIdleWarmup || mSnapshotMode) && ViewCompat.isAttachedToWindow(this)) {
+            //a pending restart starts the warmer once the quiet period is over
+            if(!mInGesture && !mWarmerRestartPosted)
+                mWarmer.start();
+        }
+        else if(!mIdleWarmup && !mSnapshotMode)
+            mWarmer.stop();
+    }
+
+    /**
+     * Stop the {@link IdleWarmer} and restart it after a quiet period
+     */
+    private void deferWarmer() {
+        if(!mIdleWarmup && !mSnapshotMode)
+            return;
+        mWarmer.stop();
+        mLastActivityTime = SystemClock.uptimeMillis();
+        if(!mWarmerRestartPosted)
+            postWarmerRestart(WARMUP_QUIET_PERIOD);
+    }
+
+    private void postWarmerRestart(long delay) {
+        mWarmerRestartPosted = true;
+        postDelayed(mWarmerRestart, delay);
+    }
+
+    /**
+     * Next drawer for the {@link IdleWarmer}.  Drawers whose lazy content isn't inflated are skipped unless
+     * {@link #mIdleWarmupInflate}.
+     * @return a closed, idle drawer which isn't warm or needs a snapshot, or <code>null</code> if none is left
+     */
+    DrawerHolder nextColdDrawer() {
+        for(int i=0; i<mHolderCount; i++) {
+            final DrawerHolder holder = mHolders[i];
+            if(!holder.trimmed && (mIdleWarmupInflate || holder.drawer.isContentInflated())
+                    && holder.drawer.mState==STATE_IDLE && getDragLayoutParams(holder.drawer).onScreen==0f
+                    && (mIdleWarmup && !holder.warm || needsSnapshot(holder)))
+                return holder;
+        }
+        return null;
+    }
+
+    private boolean needsSnapshot(DrawerHolder holder) {
+        return mSnapshotMode && !holder.snapshotDenied && !holder.drawer.isSnapshotValid();
+    }
+
+    /**
+     * Called by the {@link IdleWarmer} when a drawer's content has been drawn and is still laid out
+     * @param holder    the drawer
+     */
+    void onDrawerWarm(DrawerHolder holder) {
+        holder.warm = true;
+        if(!needsSnapshot(holder))
+            return;
+        final DraggedDrawer drawer = holder.drawer;
+        final View content = drawer.peekContent();
+        int bytes = content!=null ? content.getWidth()*content.getHeight()*4 : 0;
+        for(int i=0; i<mHolderCount; i++) {
+            if(mHolders[i]!=holder)
+                bytes += mHolders[i].drawer.getSnapshotBytes();
+        }
+        //try again after the drawer is opened and closed, or the budget changes
+        if(bytes>mSnapshotBudget || !drawer.captureSnapshot()) {
+            drawer.releaseSnapshot();
+            holder.snapshotDenied = true;
+        }
+    }
+
+    /**
+     * Can the {@link IdleWarmer} run?  Drawers are only warmed once they have been laid out.
+     * @return true if the layout is attached and laid out
+     */
+    boolean isReadyForWarmup() {
+        return !mFirstLayout;
+    }
+
+    /**
+     * Minimum offset change between two slide callbacks of a drawer
+     * @return minimum change, from 0-1
+     */
+    public float getSlideEpsilon() {
+        return mSlideEpsilon;
     }
 
     /**
@@ -160,7 +885,7 @@ public class DragLayout extends RelativeLayout {
      * @return true if a drawer is visible
      */
     public boolean hasVisibleDrawer() {
-        return findVisibleDrawer() != null;
+        return mVisibleMask!=0;
     }
 
     /**
@@ -191,6 +916,7 @@ public class DragLayout extends RelativeLayout {
         if(lp.onScreen==1f)
             return;
 
+        final boolean inflated = drawer.inflateContent();
         dispatchOnDrawerOpening(drawer);
         closeAllDrawers(drawer, true);
 
@@ -199,23 +925,13 @@ public class DragLayout extends RelativeLayout {
         if(mFirstLayout) {
             lp.onScreen=1f;
             lp.knownOpen=true;
+            updateVisibleMask(drawer, 1f);
             drawer.setLayoutParams(lp);
+        } else if(animate && inflated) {
+            //the range isn't known until the new content is measured
+            getDrawerHolder(drawer).settlePending = true;
         } else if(animate) {
-            final ViewDragHelper helper = mDrawers.get(drawer).helper;
-            switch(drawer.getDrawerType()) {
-                case DRAWER_LEFT:
-                    helper.smoothSlideViewTo(drawer, 0, drawer.getTop());
-                    break;
-                case DRAWER_RIGHT:
-                    helper.smoothSlideViewTo(drawer, getWidth() - drawer.getWidth(), drawer.getTop());
-                    break;
-                case DRAWER_TOP:
-                    helper.smoothSlideViewTo(drawer, drawer.getLeft(), 0);
-                    break;
-                case DRAWER_BOTTOM:
-                    helper.smoothSlideViewTo(drawer, drawer.getLeft(), getHeight() - drawer.getHeight());
-                    break;
-            }
+            settleDrawer(drawer, 1f, 0);
         } else {
             moveDrawerToOffset(drawer, 1f);
         }
@@ -244,48 +960,317 @@ public class DragLayout extends RelativeLayout {
         if(mFirstLayout) {
             lp.onScreen=0f;
             lp.knownOpen=false;
+            updateVisibleMask(drawer, 0f);
             drawer.setLayoutParams(lp);
         } else if(animate) {
-            final ViewDragHelper helper = mDrawers.get(drawer).helper;
+            settleDrawer(drawer, 0f, 0);
+        } else {
+            moveDrawerToOffset(drawer, 0f);
+        }
+        invalidate();
+    }
+
+    private void moveDrawerToOffset(DraggedDrawer drawer, float slideOffset) {
+        final float oldOffset = getDrawerViewOffset(drawer);
+        if(DEBUG)
+            Log.v(TAG, "Move drawer to offset " + oldOffset + "-->" + slideOffset);
+        final DrawerHolder holder = getDrawerHolder(drawer);
+        holder.settlePending = false;
+        releaseScroller(holder);
+        mSettler.stop(holder);
+        positionDrawer(drawer, slideOffset);
+        setDrawerViewOffset(drawer, slideOffset);
+        updateDrawerState(STATE_IDLE, drawer);
+    }
+
+    /**
+     * Animate a drawer to an offset
+     * @param drawer        the drawer
+     * @param slideOffset   destination offset
+     * @param velocity      initial velocity in the opening direction (pixels/second)
+     */
+    private void settleDrawer(DraggedDrawer drawer, float slideOffset, float velocity) {
+        final DrawerHolder holder = getDrawerHolder(drawer);
+        final float oldOffset = getDrawerViewOffset(drawer);
+        final int range = getDrawerRange(drawer);
+        final int distance = Math.round(Math.abs(slideOffset-oldOffset)*range);
+        drawer.destinationOffset=slideOffset;
+        holder.settlePending = false;
+        if(distance==0) {
+            moveDrawerToOffset(drawer, slideOffset);
+            return;
+        }
+        holder.settleFrom = oldOffset;
+        holder.settleTo = slideOffset;
+        holder.spring = mSettleMode==SETTLE_SPRING;
+        if(holder.spring) {
+            holder.settleStartTime = AnimationUtils.currentAnimationTimeMillis();
+            holder.settleDisplacement = (oldOffset-slideOffset)*range;
+            holder.settleVelocity = velocity;
+        } else {
+            if(holder.scroller==null)
+                holder.scroller = ScrollerPool.acquire(getContext(), sInterpolator);
+            holder.scroller.startScroll(0, 0, distance, 0, computeSettleDuration(distance, velocity, range));
+        }
+        updateDrawerState(STATE_SETTLING, drawer);
+        mSettler.start(holder);
+    }
+
+    private int computeSettleDuration(int distance, float velocity, int range) {
+        final int duration;
+        if(velocity!=0)
+            duration = 4 * Math.round(1000 * Math.abs(distance / velocity));
+        else
+            duration = (int) (((float) distance / range + 1) * BASE_SETTLE_DURATION);
+        return Math.min(duration, MAX_SETTLE_DURATION);
+    }
+
+    /**
+     * Advance a settling drawer to the current animation frame.
+     * Called by the {@link DrawerSettler} for each animating drawer.
+     * @param holder    the drawer
+     * @return true if the drawer is still settling
+     */
+    boolean continueSettling(DrawerHolder holder) {
+        final DraggedDrawer drawer = holder.drawer;
+        if(drawer.mState!=STATE_SETTLING)
+            return false;
+        final boolean keepGoing;
+        final float offset;
+        if(holder.spring) {
+            final float t = (AnimationUtils.currentAnimationTimeMillis()-holder.settleStartTime)/1000f;
+            final float x = SpringCurve.position(holder.settleDisplacement, holder.settleVelocity, SPRING_FREQUENCY, t);
+            final float v = SpringCurve.velocity(holder.settleDisplacement, holder.settleVelocity, SPRING_FREQUENCY, t);
+            //stop at rest, or when overshooting since the drawer can't travel past its destination
+            keepGoing = SPRING_FREQUENCY*t<SpringCurve.MAX_TIME
+                    && x*holder.settleDisplacement>0
+                    && (Math.abs(x)>SPRING_THRESHOLD || Math.abs(v)>SPRING_THRESHOLD*SPRING_FREQUENCY);
+            offset = keepGoing ? holder.settleTo + x/getDrawerRange(drawer) : holder.settleTo;
+        } else {
+            final ScrollerCompat scroller = holder.scroller;
+            //the scroller is released on detach, finish the settle right away
+            keepGoing = scroller!=null && scroller.computeScrollOffset()
+                    && scroller.getCurrX()!=scroller.getFinalX();
+            offset = keepGoing
+                    ? holder.settleFrom + (holder.settleTo-holder.settleFrom)*scroller.getCurrX()/scroller.getFinalX()
+                    : holder.settleTo;
+            if(!keepGoing)
+                releaseScroller(holder);
+        }
+        positionDrawer(drawer, offset);
+        setDrawerViewOffset(drawer, offset);
+        if(!keepGoing)
+            updateDrawerState(STATE_IDLE, drawer);
+        return keepGoing;
+    }
+
+    /**
+     * Move a drawer to the position corresponding to an offset
+     * @param drawer        the drawer
+     * @param slideOffset   offset, from 0-1
+     */
+    private void positionDrawer(DraggedDrawer drawer, float slideOffset) {
+        final DrawerHolder holder = getDrawerHolder(drawer);
+        if(mMovementMode==MOVEMENT_TRANSLATION) {
+            final float offScreen = (1-slideOffset)*getDrawerRange(drawer);
             switch(drawer.getDrawerType()) {
                 case DRAWER_LEFT:
-                    helper.smoothSlideViewTo(drawer, drawer.getHandleSize() - drawer.getWidth(), drawer.getTop());
+                    ViewCompat.setTranslationX(drawer, -offScreen);
                     break;
                 case DRAWER_RIGHT:
-                    helper.smoothSlideViewTo(drawer, getWidth() - drawer.getHandleSize(), drawer.getTop());
+                    ViewCompat.setTranslationX(drawer, offScreen);
                     break;
                 case DRAWER_TOP:
-                    helper.smoothSlideViewTo(drawer, drawer.getLeft(), drawer.getHandleSize() - drawer.getHeight());
+                    ViewCompat.setTranslationY(drawer, -offScreen);
                     break;
                 case DRAWER_BOTTOM:
-                    helper.smoothSlideViewTo(drawer, drawer.getLeft(), getHeight() - drawer.getHandleSize());
+                    ViewCompat.setTranslationY(drawer, offScreen);
                     break;
             }
-        } else {
-            moveDrawerToOffset(drawer, 0f);
+            mTouchRegions.invalidate();
+            updateShadow(holder, slideOffset);
+            return;
         }
-        invalidate();
-    }
-
-    private void moveDrawerToOffset(DraggedDrawer drawer, float slideOffset) {
-        final float oldOffset = getDrawerViewOffset(drawer);
-        Log.v(TAG, "Move drawer to offset " + oldOffset + "-->" + slideOffset);
+        final int shift = getLayoutShift(drawer, slideOffset, getDrawerRange(drawer));
         switch(drawer.getDrawerType()) {
             case DRAWER_LEFT:
             case DRAWER_RIGHT:
-                final int width = drawer.getWidth()-drawer.getHandleSize();
-                final int dx = (int)((slideOffset-oldOffset)*width);
-                drawer.offsetLeftAndRight(drawer.getDrawerType()==DRAWER_LEFT ? dx : -dx);
+                drawer.offsetLeftAndRight(holder.openLeft+shift-drawer.getLeft());
                 break;
             case DRAWER_TOP:
             case DRAWER_BOTTOM:
-                final int height = drawer.getHeight()-drawer.getHandleSize();
-                final int dy = (int) ((slideOffset-oldOffset)*height);
-                drawer.offsetTopAndBottom(drawer.getDrawerType() == DRAWER_TOP ? dy : -dy);
+                drawer.offsetTopAndBottom(holder.openTop+shift-drawer.getTop());
                 break;
         }
-        setDrawerViewOffset(drawer, slideOffset);
-        updateDrawerState(STATE_IDLE, drawer);
+        mTouchRegions.invalidate();
+        updateShadow(holder, slideOffset);
+    }
+
+    /**
+     * Recompute the shadow drawable bounds and alpha of a drawer in {@link #SHADOW_DRAWABLE} mode.
+     * The layout is only redrawn when the shadow actually changes.
+     * @param holder        the drawer
+     * @param slideOffset   offset of the drawer, from 0-1
+     */
+    private void updateShadow(DrawerHolder holder, float slideOffset) {
+        final DraggedDrawer drawer = holder.drawer;
+        //closed drawers don't load their shadow
+        final Drawable shadow = slideOffset>0f && !isElevationShadow() ? drawer.getShadowDrawable() : null;
+        final Rect bounds = holder.shadowBounds;
+        if(shadow==null) {
+            if(holder.shadowAlpha!=0) {
+                holder.shadowAlpha = 0;
+                invalidate(bounds);
+            }
+            return;
+        }
+        final int shadowWidth = shadow.getIntrinsicWidth();
+        final int shadowHeight = shadow.getIntrinsicHeight();
+        final int drawerPeekDistance = mArbiter.getEdgeSize();
+        //visual bounds, including translation
+        final int left = drawer.getLeft() + (int) ViewCompat.getTranslationX(drawer);
+        final int top = drawer.getTop() + (int) ViewCompat.getTranslationY(drawer);
+        final int right = left + drawer.getWidth();
+        final int bottom = top + drawer.getHeight();
+        final int alpha;
+        final int oldLeft = bounds.left, oldTop = bounds.top, oldRight = bounds.right, oldBottom = bounds.bottom;
+        switch(drawer.getDrawerType()) {
+            case DRAWER_LEFT:{
+                final int childRight = right-drawer.getHandleSize();
+                alpha = (int) (0xff * Math.max(0, Math.min((float) childRight / drawerPeekDistance, 1.f)));
+                bounds.set(childRight, top, childRight + shadowWidth, bottom);
+                break;
+            }
+            case DRAWER_RIGHT:{
+                final int childLeft = left+drawer.getHandleSize();
+                alpha = (int) (0xff * Math.max(0, Math.min((float) (getWidth()-childLeft) / drawerPeekDistance, 1.f)));
+                bounds.set(childLeft-shadowWidth, top, childLeft, bottom);
+                break;
+            }
+            case DRAWER_TOP: {
+                final int childBottom = bottom-drawer.getHandleSize();
+                alpha = (int) (0xff * Math.max(0, Math.min((float) childBottom / drawerPeekDistance, 1.f)));
+                bounds.set(left, childBottom, right, childBottom + shadowHeight);
+                break;
+            }
+            default:{
+                final int childTop = top+drawer.getHandleSize();
+                alpha = (int) (0xff * Math.max(0, Math.min((float) (getHeight()-childTop) / drawerPeekDistance, 1.f)));
+                bounds.set(left, childTop-shadowHeight, right, childTop);
+                break;
+            }
+        }
+        final boolean moved = bounds.left!=oldLeft || bounds.top!=oldTop
+                || bounds.right!=oldRight || bounds.bottom!=oldBottom;
+        if(alpha==holder.shadowAlpha && !moved)
+            return;
+        if(moved && holder.shadowAlpha!=0)
+            invalidate(oldLeft, oldTop, oldRight, oldBottom);
+        holder.shadowAlpha = alpha;
+        invalidate(bounds);
+    }
+
+    /**
+     * Distance of a drawer's laid out position from its fully open position, along its axis.
+     * Always 0 in {@link #MOVEMENT_TRANSLATION} mode, where drawers stay laid out fully open.
+     * @param drawer        the drawer
+     * @param slideOffset   offset, from 0-1
+     * @param range         drag range of the drawer (pixels)
+     * @return horizontal shift for left/right drawers, vertical shift for top/bottom drawers (pixels)
+     */
+    int getLayoutShift(DraggedDrawer drawer, float slideOffset, int range) {
+        if(mMovementMode==MOVEMENT_TRANSLATION)
+            return 0;
+        final int offScreen = Math.round((1-slideOffset)*range);
+        switch(drawer.getDrawerType()) {
+            case DRAWER_LEFT:
+            case DRAWER_TOP:
+                return -offScreen;
+            default:
+                return offScreen;
+        }
+    }
+
+    /**
+     * Distance a drawer travels between closed and open
+     * @param drawer    the drawer
+     * @return drag range (pixels)
+     */
+    private int getDrawerRange(DraggedDrawer drawer) {
+        switch(drawer.getDrawerType()) {
+            case DRAWER_LEFT:
+            case DRAWER_RIGHT:
+                return drawer.getWidth()-drawer.getHandleSize();
+            default:
+                return drawer.getHeight()-drawer.getHandleSize();
+        }
+    }
+
+    /**
+     * Drag a captured drawer
+     * @param drawer    the captured drawer
+     * @param delta     distance dragged in the opening direction (pixels)
+     */
+    void dragDrawerBy(DraggedDrawer drawer, float delta) {
+        final int range = getDrawerRange(drawer);
+        if(range<=0)
+            return;
+        final float offset = Math.max(0f, Math.min(1f, getDrawerViewOffset(drawer) + delta/range));
+        positionDrawer(drawer, offset);
+        setDrawerViewOffset(drawer, offset);
+    }
+
+
+    /**
+     * Called by the {@link DragArbiter} when a gesture starts on a drawer's handle or edge.
+     * Lazy content is inflated now, and a closed drawer is prewarmed, so it is measured by
+     * the time the touch slop is crossed.
+     * @param drawer    the touched drawer
+     */
+    void onDrawerTouched(DraggedDrawer drawer) {
+        if(mPrewarmOnTouch && getDragLayoutParams(drawer).onScreen==0f && drawer.mState==STATE_IDLE)
+            drawer.prewarm(true);
+        else
+            drawer.inflateContent();
+    }
+
+    /**
+     * Called by the {@link DragArbiter} when a gesture which started on a drawer ends, whether or
+     * not the drawer was dragged.  Cancels a prewarm which wasn't followed by the drawer opening.
+     * @param drawer    the touched drawer
+     */
+    void onDrawerTouchEnded(DraggedDrawer drawer) {
+        drawer.cancelPrewarm();
+    }
+
+    /**
+     * Called by the {@link DragArbiter} when a drawer is captured by the pointer
+     * @param drawer    the captured drawer
+     */
+    void onDrawerCaptured(DraggedDrawer drawer) {
+        final DrawerHolder holder = getDrawerHolder(drawer);
+        holder.settlePending = false;
+        releaseScroller(holder);
+        mSettler.stop(holder);
+        if(getDragLayoutParams(drawer).onScreen==0f)
+            dispatchOnDrawerOpening(drawer);
+        closeAllDrawers(drawer, true);
+        if(drawer.getHandle()!=null)
+            drawer.getHandle().setPressed(true);
+        updateDrawerState(STATE_DRAGGING, drawer);
+    }
+
+    /**
+     * Called by the {@link DragArbiter} when the pointer releases a captured drawer
+     * @param drawer    the released drawer
+     * @param velocity  release velocity in the opening direction (pixels/second)
+     */
+    void onDrawerReleased(DraggedDrawer drawer, float velocity) {
+        if(drawer.getHandle()!=null)
+            drawer.getHandle().setPressed(false);
+        final float offset = getDrawerViewOffset(drawer);
+        settleDrawer(drawer, velocity > 0 || velocity == 0 && offset > .5f ? 1f : 0f, velocity);
+        invalidate();
     }
 
     /**
@@ -297,24 +1282,117 @@ public class DragLayout extends RelativeLayout {
     }
 
     private void closeAllDrawers(DraggedDrawer except, boolean animate) {
-        for(DraggedDrawer drawer : mDrawers.keySet()) {
+        for(int i=0; i<mHolderCount; i++) {
+            final DraggedDrawer drawer = mHolders[i].drawer;
             if(isDrawerVisible(drawer) && drawer!=except)
                 closeDrawer(drawer, animate);
         }
     }
 
+    /**
+     * Snap every drawer to an offset, without animation or listener callbacks.
+     * Meant for rebinding a recycled layout, e.g. a list row, to new data.  Any gesture
+     * or settle animation in progress is dropped.
+     * @param slideOffset   offset of all drawers, from 0-1
+     */
+    public void resetDrawers(float slideOffset) {
+        mArbiter.cancel(false);
+        for(int i=0; i<mHolderCount; i++)
+            resetDrawer(mHolders[i], slideOffset);
+        onDrawersReset();
+    }
+
+    /**
+     * Snap a drawer to an offset, without animation or listener callbacks.
+     * @param drawer        the drawer
+     * @param slideOffset   offset, from 0-1
+     * @see #resetDrawers(float)
+     */
+    public void resetDrawer(DraggedDrawer drawer, float slideOffset) {
+        final DrawerHolder holder = getDrawerHolder(drawer);
+        if(holder==null)
+            return;
+        resetDrawer(holder, slideOffset);
+        onDrawersReset();
+    }
+
+    private void resetDrawer(DrawerHolder holder, float slideOffset) {
+        final DraggedDrawer drawer = holder.drawer;
+        holder.settlePending = false;
+        releaseScroller(holder);
+        mSettler.stop(holder);
+        mArbiter.forget(drawer);
+        if(drawer.getHandle()!=null)
+            drawer.getHandle().setPressed(false);
+        if(drawer.mState!=STATE_IDLE)
+            drawer.setDrawerState(STATE_IDLE);
+        drawer.destinationOffset = slideOffset;
+        final LayoutParams lp = getDragLayoutParams(drawer);
+        if(isElevationShadow())
+            ViewCompat.setElevation(drawer, slideOffset>0f ? mDrawerElevation : 0);
+        lp.onScreen = slideOffset;
+        lp.knownOpen = slideOffset==1f;
+        holder.dispatchedOffset = slideOffset;
+        holder.slidePending = false;
+        updateVisibleMask(drawer, slideOffset);
+        drawer.setContentVisibility(slideOffset>0f ? VISIBLE : GONE);
+        if(!mFirstLayout)
+            positionDrawer(drawer, slideOffset);
+    }
+
+    /**
+     * Bring the layout in line with drawers which were reset, without notifying listeners
+     */
+    private void onDrawersReset() {
+        updateScrim();
+        mDrawerState = computeLayoutState();
+        if(mDrawerState==STATE_IDLE && mLayoutPending) {
+            mLayoutPending = false;
+            requestLayout();
+        }
+    }
+
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
         mFirstLayout=true;
+        mSettler.schedule();
+        getViewTreeObserver().addOnScrollChangedListener(mScrollListener);
+        updateWarmer();
+        TrimCallbacks.register(this);
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        //a drawer captured by the gesture would otherwise be left dragging
+        mArbiter.cancel(true);
+        mSettler.unschedule();
+        mWarmer.stop();
+        getViewTreeObserver().removeOnScrollChangedListener(mScrollListener);
+        removeCallbacks(mWarmerRestart);
+        mWarmerRestartPosted = false;
+        mInGesture = false;
+        TrimCallbacks.unregister(this);
+        mInSettleFrame = false;
+        flushSlideFrame();
+        mArbiter.recycle();
+        for(int i=0; i<mHolderCount; i++)
+            releaseScroller(mHolders[i]);
         mFirstLayout=true;
     }
 
+    /**
+     * Return the settle scroller of a drawer to the shared pool
+     * @param holder    the drawer
+     */
+    private void releaseScroller(DrawerHolder holder) {
+        if(holder.scroller!=null) {
+            ScrollerPool.release(holder.scroller);
+            holder.scroller = null;
+        }
+    }
+
     @Override
     protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
         return p instanceof LayoutParams;
@@ -339,80 +1417,203 @@ public class DragLayout extends RelativeLayout {
                 : new LayoutParams(p);
     }
 
+    /**
+     * Inflates the lazy content of open drawers before measuring
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        inflateOpenDrawers();
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    /**
+     * Inflate the lazy content of drawers which are at least partially open, so it is measured.
+     * Called by layouts at the start of {@link #onMeasure(int, int)}.
+     */
+    void inflateOpenDrawers() {
+        for(int i=0; i<mHolderCount; i++) {
+            final DraggedDrawer drawer = mHolders[i].drawer;
+            if(getDragLayoutParams(drawer).onScreen>0f)
+                drawer.inflateContent();
+        }
+    }
+
+    /**
+     * Layout requests made while drawers are dragged or settling are deferred.  A single flag records that
+     * one was made, and one layout is requested once all drawers are idle.  The views which made the requests
+     * keep their own force layout flags, so that pass remeasures them, while the framework skips remeasuring
+     * the other children if their measure specs are unchanged.
+     */
     @Override
     public void requestLayout() {
-        if (!mInLayout && mDrawerState==STATE_IDLE)
-            super.requestLayout();
+        if (mInLayout)
+            return;
+        if (mDrawerState!=STATE_IDLE) {
+            mLayoutPending=true;
+            return;
+        }
+        super.requestLayout();
     }
 
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         mInLayout=true;
-        super.onLayout(changed, l, t, r, b);
-        for(DraggedDrawer drawer : mDrawers.keySet()) {
+        mLayoutPending=false;
+        layoutChildren(changed, l, t, r, b);
+        for(int i=0; i<mHolderCount; i++) {
+            final DrawerHolder holder = mHolders[i];
+            final DraggedDrawer drawer = holder.drawer;
             LayoutParams lp = getDragLayoutParams(drawer);
-            final int drawerWidth = drawer.getWidth()-drawer.getHandleSize();
-            final int drawerHeight = drawer.getHeight()-drawer.getHandleSize();
-            final float offScreen = 1-lp.onScreen;
-            switch(drawer.getDrawerType()) {
-                case DRAWER_LEFT:
-                    drawer.offsetLeftAndRight((int)(-offScreen*drawerWidth));
-                    break;
-                case DRAWER_RIGHT:
-                    drawer.offsetLeftAndRight((int)(offScreen*drawerWidth));
-                    break;
-                case DRAWER_TOP:
-                    drawer.offsetTopAndBottom((int)(-offScreen*drawerHeight));
-                    break;
-                case DRAWER_BOTTOM:
-                    drawer.offsetTopAndBottom((int)(offScreen*drawerHeight));
-                    break;
-            }
-            int contentVisibility = drawer.getContent().getVisibility();
-            int newVisibility = lp.onScreen==0 ? GONE : VISIBLE;
-            if(newVisibility!=contentVisibility)
+            positionDrawer(drawer, lp.onScreen);
+            if(isElevationShadow())
+                ElevationShadow.invalidate(drawer);
+            final View content = drawer.peekContent();
+            int newVisibility = lp.onScreen==0 && !holder.settlePending && !drawer.isPrewarming() ? GONE : VISIBLE;
+            if(content!=null && newVisibility!=content.getVisibility())
                 drawer.setContentVisibility(newVisibility);
 
-            if(mFirstLayout && lp.onScreen==0f && drawer.mListener!=null)
-                drawer.mListener.onDrawerClosed();
+            if(mFirstLayout && lp.onScreen==0f)
+                drawer.dispatchClosed();
+            if(holder.settlePending)
+                settleDrawer(drawer, drawer.destinationOffset, 0);
         }
+        updateScrim();
+        mTouchRegions.invalidate();
         mInLayout=false;
         mFirstLayout=false;
     }
 
-    @Override
-    public void addView(View child) {
-        super.addView(child);
-        processAddView(child);
+    /**
+     * Place the children and record the fully open position of each drawer with
+     * {@link #setDrawerOpenPosition(DrawerHolder, int, int)}.  Drawers which aren't placed at their
+     * offset are moved there afterwards.
+     * <p>
+     * The default lets {@link RelativeLayout} place the drawers fully open.
+     * </p>
+     */
+    void layoutChildren(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        for(int i=0; i<mHolderCount; i++) {
+            final DrawerHolder holder = mHolders[i];
+            setDrawerOpenPosition(holder, holder.drawer.getLeft(), holder.drawer.getTop());
+        }
+    }
+
+    /**
+     * Record where a drawer is when it is fully open
+     * @param holder    the drawer
+     * @param left      left position of the open drawer, relative to this layout
+     * @param top       top position of the open drawer, relative to this layout
+     */
+    void setDrawerOpenPosition(DrawerHolder holder, int left, int top) {
+        holder.openLeft = left;
+        holder.openTop = top;
+    }
+
+    /**
+     * Get the layout and settle state of a drawer
+     * @param drawer    the drawer
+     * @return its holder, or null if it isn't a child of this layout
+     */
+    DrawerHolder getDrawerHolder(DraggedDrawer drawer) {
+        final int slot = drawer.mSlot;
+        return slot>=0 && slot<mHolderCount && mHolders[slot].drawer==drawer ? mHolders[slot] : null;
     }
 
+    /**
+     * The listener is called after the layout has registered or dropped an added or removed drawer
+     */
     @Override
-    public void addView(View child, ViewGroup.LayoutParams params) {
-        super.addView(child, params);
-        processAddView(child);
+    public void setOnHierarchyChangeListener(OnHierarchyChangeListener listener) {
+        mHierarchyListener = listener;
     }
 
-    private void processAddView(View child) {
-        if(child instanceof DraggedDrawer) {
-            final DraggedDrawer dragView = (DraggedDrawer)child;
-            DragCallback callback = new DragCallback();
-            ViewDragHelper helper = ViewDragHelper.create(this, DRAG_SENSITIVITY, callback);
-            helper.setMinVelocity(minFlingVelocity);
-            callback.setDragHelper(helper);
-            callback.setDragView(dragView);
-            mDrawers.put(dragView, new DrawerHolder(helper, callback));
+    private void addDrawer(DraggedDrawer drawer) {
+        if(mHolderCount==MAX_DRAWERS)
+            throw new IllegalStateException("DragLayout supports at most " + MAX_DRAWERS + " drawers");
+        if(mHolderCount==mHolders.length) {
+            final DrawerHolder[] holders = new DrawerHolder[mHolderCount*2];
+            System.arraycopy(mHolders, 0, holders, 0, mHolderCount);
+            mHolders = holders;
+        }
+        final DrawerHolder holder = new DrawerHolder(drawer);
+        holder.dispatchedOffset = getDragLayoutParams(drawer).onScreen;
+        drawer.mSlot = mHolderCount;
+        mHolders[mHolderCount++] = holder;
+        updateVisibleMask(drawer, getDragLayoutParams(drawer).onScreen);
+        applyShadowMode(holder);
+        mTouchRegions.invalidate();
+        updateWarmer();
+    }
+
+    private void removeDrawer(DraggedDrawer drawer) {
+        final DrawerHolder holder = getDrawerHolder(drawer);
+        if(holder==null)
+            return;
+        releaseScroller(holder);
+        mSettler.stop(holder);
+        mWarmer.forget(holder);
+        mArbiter.forget(drawer);
+        updateVisibleMask(drawer, 0f);
+        //move the last drawer into the free slot
+        final int slot = drawer.mSlot;
+        final int last = --mHolderCount;
+        if(slot!=last) {
+            final DrawerHolder moved = mHolders[last];
+            final boolean visible = (mVisibleMask & (1L << last)) != 0;
+            mVisibleMask &= ~(1L << last);
+            if(visible)
+                mVisibleMask |= 1L << slot;
+            mHolders[slot] = moved;
+            moved.drawer.mSlot = slot;
+        }
+        mHolders[last] = null;
+        drawer.mSlot = -1;
+        drawer.setDrawerState(STATE_IDLE);
+        if(drawer==mScrimDrawer)
+            updateScrim();
+        mTouchRegions.invalidate();
+        updateLayoutState();
+    }
+
+    /**
+     * Track whether a drawer is visible in {@link #mVisibleMask}
+     * @param drawer        the drawer
+     * @param slideOffset   its offset
+     */
+    private void updateVisibleMask(DraggedDrawer drawer, float slideOffset) {
+        if(slideOffset>0f) {
+            mVisibleMask |= 1L << drawer.mSlot;
+            //a drawer which has been shown doesn't need a warmup
+            mHolders[drawer.mSlot].warm = true;
+            mHolders[drawer.mSlot].trimmed = false;
+        } else {
+            mVisibleMask &= ~(1L << drawer.mSlot);
+        }
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        final int action = MotionEventCompat.getActionMasked(ev);
+        //input has priority over the warmup
+        if(action==MotionEvent.ACTION_DOWN) {
+            mInGesture = true;
+            mWarmer.stop();
+        }
+        final boolean handled = super.dispatchTouchEvent(ev);
+        //drawers and children may still be settling or flinging, so wait for a quiet period
+        if(action==MotionEvent.ACTION_UP || action==MotionEvent.ACTION_CANCEL) {
+            mInGesture = false;
+            deferWarmer();
         }
+        return handled;
     }
 
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
-        boolean interceptForDrag = false;
+        final boolean interceptForDrag = mArbiter.processTouchEvent(ev);
         boolean interceptForTap = false;
 
-        for(DrawerHolder holder : mDrawers.values())
-            interceptForDrag |= holder.helper.shouldInterceptTouchEvent(ev);
-        interceptForDrag |= mEdgeDragHelper.shouldInterceptTouchEvent(ev);
-
         final int action = ev.getAction();
         switch (action) {
             case MotionEvent.ACTION_DOWN: {
@@ -422,7 +1623,7 @@ public class DragLayout extends RelativeLayout {
                 mInitialMotionY = y;
                 mLargestDx=0;
                 mLargestDy=0;
-                if (mScrimOpacity > 0 &&!(mEdgeDragHelper.findTopChildUnder((int) x, (int) y) instanceof DraggedDrawer))
+                if (mScrimOpacity > 0 && findTopDrawerUnder((int) x, (int) y)==null)
                     interceptForTap = true;
                 break;
             }
@@ -431,18 +1632,16 @@ public class DragLayout extends RelativeLayout {
                 break;
             }
         }
-        if(interceptForDrag)
+        if(DEBUG && interceptForDrag)
             Log.v(TAG, "interceptForDrag");
-        if(interceptForTap)
+        if(DEBUG && interceptForTap)
             Log.v(TAG, "interceptForTap");
         return interceptForDrag || interceptForTap;
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        for(DrawerHolder holder : mDrawers.values())
-            holder.helper.processTouchEvent(event);
-        mEdgeDragHelper.processTouchEvent(event);
+        mArbiter.processTouchEvent(event);
 
         final int action = event.getAction();
         final float x = event.getX();
@@ -462,13 +1661,13 @@ public class DragLayout extends RelativeLayout {
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL: {
                 updateTouchDelta(x, y);
-                int slop = mEdgeDragHelper.getTouchSlop();
+                int slop = mArbiter.getTouchSlop();
                 boolean isTap = mLargestDx * mLargestDx + mLargestDy * mLargestDy < slop * slop;
                 if(isTap) {
-                    Log.v(TAG, "Tap detected");
-                    View under = mEdgeDragHelper.findTopChildUnder((int) x, (int) y);
-                    if(under instanceof DraggedDrawer) {
-                        DraggedDrawer d = (DraggedDrawer)under;
+                    if(DEBUG)
+                        Log.v(TAG, "Tap detected");
+                    DraggedDrawer d = findTopDrawerUnder((int) x, (int) y);
+                    if(d!=null) {
                         if(d.isHandleHit((int) x, (int) y)) {
                             if(getDragLayoutParams(d).knownOpen)
                                 closeDrawer(d);
@@ -495,33 +1694,74 @@ public class DragLayout extends RelativeLayout {
         mLargestDy=Math.max(mLargestDy, dy);
     }
 
-    @Override
-    public void computeScroll() {
-        final int childCount = getChildCount();
-        float scrimOpacity = 0;
-        for (int i = 0; i < childCount; i++) {
-            final float onscreen = ((LayoutParams) getChildAt(i).getLayoutParams()).onScreen;
-            scrimOpacity = Math.max(scrimOpacity, onscreen);
+    /**
+     * Find the drawer which can be captured at the given point
+     * @param x X position in the parent's coordinate system
+     * @param y Y position in the parent's coordinate system
+     * @return the drawer if it is the topmost child under (x, y), otherwise null
+     */
+    DraggedDrawer findTopDrawerUnder(int x, int y) {
+        return mTouchRegions.findDrawerUnder(x, y);
+    }
+
+    /**
+     * Find the topmost edge draggable drawer whose edge strip contains the given point.
+     * @param x X position in the parent's coordinate system
+     * @param y Y position in the parent's coordinate system
+     * @return the drawer, or null if the point is not within the edge of any drawer
+     */
+    DraggedDrawer findEdgeDrawer(int x, int y) {
+        return mTouchRegions.findEdgeDrawer(x, y);
+    }
+
+    /**
+     * Track the scrim opacity when a drawer offset changes.  Only rescans the drawers when the
+     * most visible drawer moves back.
+     * @param drawer        the moved drawer
+     * @param slideOffset   its new offset
+     */
+    private void updateScrim(DraggedDrawer drawer, float slideOffset) {
+        if(slideOffset>=mScrimOpacity) {
+            mScrimOpacity = slideOffset;
+            mScrimDrawer = slideOffset>0 ? drawer : null;
+            applyScrimAlpha();
+        } else if(drawer==mScrimDrawer) {
+            updateScrim();
         }
-        mScrimOpacity = scrimOpacity;
+    }
 
-        final int baseAlpha = (mScrimColor & 0xff000000) >>> 24;
-        final int imag = (int) (baseAlpha * mScrimOpacity);
-        final int color = imag << 24 | (mScrimColor & 0xffffff);
-        setBackgroundColor(color);
+    /**
+     * Recompute the scrim from the most visible drawer
+     */
+    private void updateScrim() {
+        mScrimOpacity = 0;
+        mScrimDrawer = null;
+        for(int i=0; i<mHolderCount; i++) {
+            final DraggedDrawer drawer = mHolders[i].drawer;
+            final float onScreen = getDragLayoutParams(drawer).onScreen;
+            if(onScreen>mScrimOpacity) {
+                mScrimOpacity = onScreen;
+                mScrimDrawer = drawer;
+            }
+        }
+        applyScrimAlpha();
+    }
 
-        boolean invalidate=false;
-        for(DrawerHolder holder : mDrawers.values())
-            invalidate |= holder.helper.continueSettling(true);
-        if (invalidate)
-            ViewCompat.postInvalidateOnAnimation(this);
+    /**
+     * Redraw the scrim if its quantized alpha changed
+     */
+    private void applyScrimAlpha() {
+        final int baseAlpha = (mScrimColor & 0xff000000) >>> 24;
+        final int alpha = (int) (baseAlpha * mScrimOpacity);
+        if(alpha==mScrimAlpha)
+            return;
+        mScrimAlpha = alpha;
+        mScrimPaint.setColor(alpha << 24 | (mScrimColor & 0xffffff));
+        invalidate();
     }
 
     private View findVisibleDrawer() {
-        for(DraggedDrawer drawer : mDrawers.keySet())
-            if(isDrawerVisible(drawer))
-                return drawer;
-        return null;
+        return mVisibleMask==0 ? null : mHolders[Long.numberOfTrailingZeros(mVisibleMask)].drawer;
     }
 
     /**
@@ -560,27 +1800,17 @@ public class DragLayout extends RelativeLayout {
     }
 
     /**
-     * Resolve the shared state of all drawers from the component ViewDragHelpers.
-     * Should be called whenever a ViewDragHelper's state changes to notify listeners.
+     * Update the state of a drawer and resolve the shared state of all drawers.
+     * Should be called whenever a drawer's state changes to notify listeners.
      */
     void updateDrawerState(int activeState, DraggedDrawer activeDrawer) {
-        int state = STATE_IDLE;
-        boolean hasSettling=false;
-        for(DrawerHolder holder : mDrawers.values()) {
-            if(holder.helper.getViewDragState() == STATE_DRAGGING) {
-                state = STATE_DRAGGING;
-                break;
-            }
-            hasSettling |= (holder.helper.getViewDragState()==STATE_SETTLING);
-        }
-        if(state!=STATE_DRAGGING && hasSettling)
-            state = STATE_SETTLING;
-
-        if (activeDrawer != null && activeState == STATE_IDLE) {
+        flushSlide(activeDrawer);
+        if (activeState == STATE_IDLE) {
             final LayoutParams lp = getDragLayoutParams(activeDrawer);
             if(lp.onScreen>0.f && lp.onScreen<1.f) {
                 Log.w(TAG, "Destination offset is off. Forcing drawer location.");
                 moveDrawerToOffset(activeDrawer, activeDrawer.destinationOffset);
+                return;
             }
             if (lp.onScreen == 0)
                 dispatchOnDrawerClosed(activeDrawer);
@@ -589,26 +1819,98 @@ public class DragLayout extends RelativeLayout {
         }
         if(activeState!=activeDrawer.mState) {
             activeDrawer.setDrawerState(activeState);
-            if(activeDrawer.mListener!=null)
-                activeDrawer.mListener.onDrawerStateChanged(activeState);
+            activeDrawer.dispatchStateChanged(activeState);
         }
+        updateLayoutState();
+    }
+
+    /**
+     * Resolve the shared state of all drawers
+     */
+    private void updateLayoutState() {
+        final int state = computeLayoutState();
         if (state != mDrawerState) {
             mDrawerState = state;
-            if (mListener != null)
-                mListener.onDrawerStateChanged(state);
+            final ListenerRegistry.Entry<DrawerListener>[] entries = mListeners.entries();
+            for(int i=0; i<entries.length; i++) {
+                if((entries[i].events & EVENT_STATE)!=0)
+                    entries[i].listener.onDrawerStateChanged(state);
+            }
+            if (state == STATE_IDLE && mLayoutPending) {
+                mLayoutPending = false;
+                requestLayout();
+            }
+        }
+    }
+
+    /**
+     * @return the shared state of all drawers
+     */
+    private int computeLayoutState() {
+        int state = STATE_IDLE;
+        for(int i=0; i<mHolderCount; i++) {
+            final int drawerState = mHolders[i].drawer.mState;
+            if(drawerState == STATE_DRAGGING) {
+                state = STATE_DRAGGING;
+                break;
+            }
+            if(drawerState == STATE_SETTLING)
+                state = STATE_SETTLING;
         }
+        return state;
     }
 
     void setDrawerViewOffset(DraggedDrawer drawer, float slideOffset) {
         final LayoutParams lp = getDragLayoutParams(drawer);
         if (slideOffset == lp.onScreen)
             return;
+        if(isElevationShadow() && (lp.onScreen>0f)!=(slideOffset>0f))
+            ViewCompat.setElevation(drawer, slideOffset>0f ? mDrawerElevation : 0);
         lp.onScreen = slideOffset;
         lp.knownOpen = slideOffset==1f;
+        updateVisibleMask(drawer, slideOffset);
+        updateScrim(drawer, slideOffset);
         drawer.setContentVisibility(slideOffset > 0f ? VISIBLE : GONE);
-        dispatchOnDrawerSlide(drawer, slideOffset);
-        if(drawer.mListener!=null)
-            drawer.mListener.onDrawerSlide(slideOffset);
+        final DrawerHolder holder = getDrawerHolder(drawer);
+        if(!mListeners.wants(EVENT_SLIDE) && !drawer.wantsEvent(EVENT_SLIDE)) {
+            holder.dispatchedOffset = slideOffset;
+            holder.slidePending = false;
+            return;
+        }
+        if(mSlideDispatch==SLIDE_DISPATCH_FRAME) {
+            holder.slidePending = true;
+            if(!mInSettleFrame && !mSlideFramePosted) {
+                mSlideFramePosted = true;
+                ViewCompat.postOnAnimation(this, mSlideFrame);
+            }
+        } else {
+            dispatchSlide(holder);
+        }
+    }
+
+    /**
+     * Dispatch the current offset of a drawer, unless it moved less than {@link #mSlideEpsilon}
+     * since its last slide callback
+     * @param holder    the drawer
+     */
+    private void dispatchSlide(DrawerHolder holder) {
+        holder.slidePending = false;
+        final float offset = getDragLayoutParams(holder.drawer).onScreen;
+        final float delta = Math.abs(offset-holder.dispatchedOffset);
+        if(delta==0f || delta<mSlideEpsilon && offset!=0f && offset!=1f)
+            return;
+        holder.dispatchedOffset = offset;
+        dispatchOnDrawerSlide(holder.drawer, offset);
+    }
+
+    /**
+     * Dispatch a pending slide callback so it is delivered before another event of the drawer
+     * @param drawer    the drawer
+     */
+    private void flushSlide(DraggedDrawer drawer) {
+        final DrawerHolder holder = getDrawerHolder(drawer);
+        if(holder!=null && holder.slidePending)
+            dispatchSlide(holder);
     }
 
     float getDrawerViewOffset(View drawerView) {
@@ -620,10 +1922,19 @@ public class DragLayout extends RelativeLayout {
      * @param drawerView    The drawer relevant to the event
      */
     private void dispatchOnDrawerClosed(DraggedDrawer drawerView) {
-        if (mListener!=null)
-            mListener.onDrawerClosed(drawerView);
-        if(drawerView.mListener!=null)
-            drawerView.mListener.onDrawerClosed();
+        flushSlide(drawerView);
+        if(mSnapshotMode) {
+            //the content was live while open, capture it again
+            drawerView.invalidateSnapshot();
+            getDrawerHolder(drawerView).snapshotDenied = false;
+            updateWarmer();
+        }
+        final ListenerRegistry.Entry<DrawerListener>[] entries = mListeners.entries();
+        for(int i=0; i<entries.length; i++) {
+            if((entries[i].events & EVENT_CLOSED)!=0)
+                entries[i].listener.onDrawerClosed(drawerView);
+        }
+        drawerView.dispatchClosed();
         sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED);
     }
 
@@ -632,10 +1943,13 @@ public class DragLayout extends RelativeLayout {
      * @param drawerView    The drawer relevant to the event
      */
     private void dispatchOnDrawerOpened(DraggedDrawer drawerView) {
-        if (mListener!=null)
-            mListener.onDrawerOpened(drawerView);
-        if(drawerView.mListener!=null)
-            drawerView.mListener.onDrawerOpened();
+        flushSlide(drawerView);
+        final ListenerRegistry.Entry<DrawerListener>[] entries = mListeners.entries();
+        for(int i=0; i<entries.length; i++) {
+            if((entries[i].events & EVENT_OPENED)!=0)
+                entries[i].listener.onDrawerOpened(drawerView);
+        }
+        drawerView.dispatchOpened();
         drawerView.sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED);
     }
 
@@ -644,10 +1958,16 @@ public class DragLayout extends RelativeLayout {
      * @param drawerView    The drawer relevant to the event
      */
     private void dispatchOnDrawerOpening(DraggedDrawer drawerView) {
-        if (mListener!=null)
-            mListener.onDrawerOpening(drawerView);
-        if(drawerView.mListener!=null)
-            drawerView.mListener.onDrawerOpening();
+        drawerView.inflateContent();
+        if(mSnapshotMode)
+            drawerView.showSnapshot();
+        flushSlide(drawerView);
+        final ListenerRegistry.Entry<DrawerListener>[] entries = mListeners.entries();
+        for(int i=0; i<entries.length; i++) {
+            if((entries[i].events & EVENT_OPENING)!=0)
+                entries[i].listener.onDrawerOpening(drawerView);
+        }
+        drawerView.dispatchOpening();
         drawerView.sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED);
     }
 
@@ -656,66 +1976,42 @@ public class DragLayout extends RelativeLayout {
      * @param drawerView    The drawer relevant to the event
      */
     private void dispatchOnDrawerSlide(DraggedDrawer drawerView, float slideOffset) {
-        if (mListener!=null)
-            mListener.onDrawerSlide(drawerView, slideOffset);
-        if(drawerView.mListener!=null)
-            drawerView.mListener.onDrawerSlide(slideOffset);
+        if(mListeners.wants(EVENT_SLIDE)) {
+            final ListenerRegistry.Entry<DrawerListener>[] entries = mListeners.entries();
+            for(int i=0; i<entries.length; i++) {
+                if((entries[i].events & EVENT_SLIDE)!=0)
+                    entries[i].listener.onDrawerSlide(drawerView, slideOffset);
+            }
+        }
+        drawerView.dispatchSlide(slideOffset);
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        mScrimDrawn = false;
+        super.dispatchDraw(canvas);
     }
 
     @Override
     protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
         if(child instanceof DraggedDrawer) {
+            //scrim goes over the content, under the first drawer
+            if(!mScrimDrawn) {
+                mScrimDrawn = true;
+                if(mScrimAlpha>0)
+                    canvas.drawRect(0, 0, getWidth(), getHeight(), mScrimPaint);
+            }
             final DraggedDrawer dragView = (DraggedDrawer)child;
-            final LayoutParams lp = getDragLayoutParams(dragView);
-            if(dragView.getShadowDrawable() != null && lp.onScreen>0f) {
-                Drawable shadow = dragView.getShadowDrawable();
-                final int shadowWidth = shadow.getIntrinsicWidth();
-                final int shadowHeight = shadow.getIntrinsicHeight();
-                final int drawerPeekDistance = mEdgeDragHelper.getEdgeSize();
-                switch(dragView.getDrawerType()) {
-                    case DRAWER_LEFT:{
-                        final int childRight = child.getRight()-dragView.getHandleSize();
-                        shadow.setAlpha((int) (0xff *
-                                Math.max(0, Math.min((float) childRight / drawerPeekDistance, 1.f))));
-                        shadow.setBounds(childRight, child.getTop(), childRight + shadowWidth, child.getBottom());
-                        break;
-                    }
-                    case DRAWER_RIGHT:{
-                        final int childLeft = child.getLeft()+dragView.getHandleSize();
-                        shadow.setAlpha((int) (0xff *
-                                Math.max(0, Math.min((float) (getWidth()-childLeft) / drawerPeekDistance, 1.f))));
-                        shadow.setBounds(childLeft-shadowWidth, child.getTop(), childLeft, child.getBottom());
-                        break;
-                    }
-                    case DRAWER_TOP: {
-                        final int childBottom = child.getBottom()-dragView.getHandleSize();
-                        shadow.setAlpha((int) (0xff *
-                                Math.max(0, Math.min((float) childBottom / drawerPeekDistance, 1.f))));
-                        shadow.setBounds(child.getLeft(), childBottom, child.getRight(), childBottom + shadowHeight);
-                        break;
-                    }
-                    case DRAWER_BOTTOM:{
-                        final int childTop = child.getTop()+dragView.getHandleSize();
-                        shadow.setAlpha((int) (0xff *
-                                Math.max(0, Math.min((float) (getHeight()-childTop) / drawerPeekDistance, 1.f))));
-                        shadow.setBounds(child.getLeft(), childTop-shadowHeight, child.getRight(), childTop);
-                        break;
-                    }
-                }
+            final DrawerHolder holder = getDrawerHolder(dragView);
+            final Drawable shadow = holder.shadowAlpha>0 ? dragView.getShadowDrawable() : null;
+            if(shadow!=null) {
+                shadow.setBounds(holder.shadowBounds);
+                shadow.setAlpha(holder.shadowAlpha);
                 shadow.draw(canvas);
             }
             return super.drawChild(canvas, child, drawingTime);
-        } else {
-            boolean result = super.drawChild(canvas, child, drawingTime);
-//            if(mScrimOpacity>0) {
-//                final int baseAlpha = (mScrimColor & 0xff000000) >>> 24;
-//                final int imag = (int) (baseAlpha * mScrimOpacity);
-//                final int color = imag << 24 | (mScrimColor & 0xffffff);
-//                mScrimPaint.setColor(color);
-//                canvas.drawRect(0, 0, getWidth(), getHeight(), mScrimPaint);
-//            }
-            return result;
         }
+        return super.drawChild(canvas, child, drawingTime);
     }
 
     @Override
@@ -732,7 +2028,8 @@ public class DragLayout extends RelativeLayout {
     @Override
     protected Parcelable onSaveInstanceState() {
         final SavedState ss = new SavedState(super.onSaveInstanceState());
-        for(DraggedDrawer drawer : mDrawers.keySet()) {
+        for(int i=0; i<mHolderCount; i++) {
+            final DraggedDrawer drawer = mHolders[i].drawer;
             if (getDragLayoutParams(drawer).knownOpen) {
                 ss.openDrawerId = drawer.getId();
                 break;
@@ -778,212 +2075,6 @@ public class DragLayout extends RelativeLayout {
         };
     }
 
-    /**
-     * Handle edge drags for all drawers.
-     * Uses Z-order to resolve conflicts (overlapping drawers)
-     */
-    private class EdgeCallback extends ViewDragHelper.Callback {
-
-        @Override
-        public void onEdgeDragStarted(int edgeFlags, int pointerId) {
-            Log.v(TAG, String.format("EdgeHelperDrag started @ %1$d x %2$d", (int)mInitialMotionX, (int)mInitialMotionY));
-            int drawerType = 0;
-            if((edgeFlags&ViewDragHelper.EDGE_LEFT) == edgeFlags)
-                drawerType = DRAWER_LEFT;
-            else if((edgeFlags&ViewDragHelper.EDGE_RIGHT) == edgeFlags)
-                drawerType = DRAWER_RIGHT;
-            else if((edgeFlags&ViewDragHelper.EDGE_TOP) == edgeFlags)
-                drawerType = DRAWER_TOP;
-            else if((edgeFlags&ViewDragHelper.EDGE_BOTTOM) == edgeFlags)
-                drawerType = DRAWER_BOTTOM;
-
-            DraggedDrawer drawer = null;
-            for(int i=getChildCount()-1;i>=0; i--) {
-                View child = getChildAt(i);
-                if(!(child instanceof DraggedDrawer))
-                    continue;
-                DraggedDrawer childDrawer = (DraggedDrawer)child;
-                if(childDrawer.isEdgeDraggable() && childDrawer.getDrawerType()==drawerType) {
-                    switch(drawerType) {
-                        case DRAWER_LEFT:
-                        case DRAWER_RIGHT:
-                            if(mInitialMotionY>childDrawer.getTop() && mInitialMotionY<childDrawer.getBottom()) {
-                                drawer = childDrawer;
-                                break;
-                            }
-                        case DRAWER_TOP:
-                        case DRAWER_BOTTOM:
-                            if(mInitialMotionX>childDrawer.getLeft() && mInitialMotionX<childDrawer.getRight()) {
-                                drawer = childDrawer;
-                                break;
-                            }
-                    }
-                }
-            }
-            if(drawer!=null) {
-                Log.v(TAG, "Edge Capturing : " + drawer);
-                mDrawers.get(drawer).helper.captureChildView(drawer, pointerId);
-            }
-        }
-
-        @Override
-        public void onEdgeTouched(int edgeFlags, int pointerId) {
-            //peek
-        }
-
-        @Override
-        public boolean tryCaptureView(View child, int pointerId) {
-            return false;	//Drawer is captured by its own ViewDragHelper. Not this one.
-        }
-    }
-
-    /**
-     * Respond to drag events for a particular drawer
-     */
-    private class DragCallback extends ViewDragHelper.Callback {
-
-        private ViewDragHelper mHelper;
-        private DraggedDrawer mDragView;
-
-        public void setDragHelper(ViewDragHelper helper) {
-            mHelper = helper;
-        }
-
-        public void setDragView(DraggedDrawer view) {
-            mDragView = view;
-        }
-
-        @Override
-        public boolean tryCaptureView(View child, int pointerId) {
-            return child == mDragView;
-        }
-
-        @Override
-        public void onViewDragStateChanged(int state) {
-            updateDrawerState(state, (DraggedDrawer)mHelper.getCapturedView());
-        }
-
-        @Override
-        public void onViewPositionChanged(View changedView, int left, int top, int dx, int dy) {
-            float offset=0;
-            final DraggedDrawer dragView = (DraggedDrawer)changedView;
-            final int childWidth = dragView.getWidth()-dragView.getHandleSize();
-            final int childHeight = dragView.getHeight()-dragView.getHandleSize();
-            switch(dragView.getDrawerType()) {
-                case DRAWER_LEFT:
-                    offset = (float) (childWidth + left) / childWidth;
-                    break;
-                case DRAWER_RIGHT:
-                    offset = (float) (getWidth() - left - dragView.getHandleSize()) / childWidth;
-                    break;
-                case DRAWER_TOP:
-                    offset = (float) (childHeight + top) / childHeight;
-                    break;
-                case DRAWER_BOTTOM:
-                    offset = (float) (getHeight() - top - dragView.getHandleSize()) / childHeight;
-                    break;
-            }
-            setDrawerViewOffset(dragView, offset);
-            invalidate();
-        }
-
-        @Override
-        public void onViewCaptured(View capturedChild, int activePointerId) {
-            final DraggedDrawer dragView = (DraggedDrawer)capturedChild;
-            if(getDragLayoutParams(dragView).onScreen==0f)
-                dispatchOnDrawerOpening(dragView);
-            closeAllDrawers(dragView, true);
-            if(dragView.getHandle()!=null)
-                dragView.getHandle().setPressed(true);
-        }
-
-        @Override
-        public void onViewReleased(View releasedChild, float xvel, float yvel) {
-            final float offset = getDrawerViewOffset(releasedChild);
-            final int childWidth = releasedChild.getWidth();
-            final int childHeight = releasedChild.getHeight();
-            final DraggedDrawer dragView = (DraggedDrawer)releasedChild;
-            if(dragView.getHandle()!=null)
-                dragView.getHandle().setPressed(false);
-
-            int left=dragView.getLeft();
-            int top=dragView.getTop();
-            switch(dragView.getDrawerType()) {
-                case DRAWER_LEFT:
-                    left = xvel > 0 || xvel == 0 && offset > .5f ? 0 : dragView.getHandleSize()-childWidth;
-                    break;
-                case DRAWER_RIGHT:
-                    final int width = getWidth();
-                    left = xvel < 0 || xvel == 0 && offset > .5f ? width-childWidth : width-dragView.getHandleSize();
-                    break;
-                case DRAWER_TOP:
-                    top = yvel > 0 || yvel == 0 && offset > .5f ? 0 : dragView.getHandleSize()-childHeight;
-                    break;
-                default:
-                    final int height = getHeight();
-                    top = yvel < 0 || yvel == 0 && offset > .5f ? height-childHeight : height-dragView.getHandleSize();
-                    break;
-            }
-            mHelper.settleCapturedViewAt(left, top);
-            invalidate();
-        }
-
-        @Override
-        public int getViewHorizontalDragRange(View child) {
-            if(!(child instanceof DraggedDrawer)) return 0;
-            final DraggedDrawer dragView = (DraggedDrawer)child;
-            switch(dragView.getDrawerType()) {
-                case DRAWER_LEFT:
-                case DRAWER_RIGHT:
-                    return child.getWidth()-dragView.getHandleSize();
-                default:
-                    return 0;
-
-            }
-        }
-
-        @Override
-        public int getViewVerticalDragRange(View child) {
-            if(!(child instanceof DraggedDrawer)) return 0;
-            final DraggedDrawer dragView = (DraggedDrawer)child;
-            switch(dragView.getDrawerType()) {
-                case DRAWER_BOTTOM:
-                case DRAWER_TOP:
-                    return child.getHeight()-dragView.getHandleSize();
-                default:
-                    return 0;
-            }
-        }
-
-        @Override
-        public int clampViewPositionVertical(View child, int top, int dy) {
-            final DraggedDrawer dragView = (DraggedDrawer)child;
-            switch(dragView.getDrawerType()) {
-                case DRAWER_TOP:
-                    return Math.max(dragView.getHandleSize() - child.getHeight(), Math.min(top, 0));
-                case DRAWER_BOTTOM:
-                    final int height = getHeight();
-                    return Math.max(height - child.getHeight(), Math.min(top, height - dragView.getHandleSize()));
-                default:
-                    return child.getTop();
-            }
-        }
-
-        @Override
-        public int clampViewPositionHorizontal(View child, int left, int dx) {
-            final DraggedDrawer dragView = (DraggedDrawer)child;
-            switch(dragView.getDrawerType()) {
-                case DRAWER_LEFT:
-                    return Math.max(dragView.getHandleSize() - child.getWidth(), Math.min(left, 0));
-                case DRAWER_RIGHT:
-                    final int width = getWidth();
-                    return Math.max(width - child.getWidth(), Math.min(left, width - dragView.getHandleSize()));
-                default:
-                    return child.getLeft();
-            }
-        }
-    }
-
     /**
      * Drawer related LayoutParams
      */
@@ -1014,15 +2105,49 @@ public class DragLayout extends RelativeLayout {
     }
 
     /**
-     * Reference to a drawer and helper functionality
+     * Per drawer layout and settle state
      */
-    public static class DrawerHolder {
-        public ViewDragHelper helper;
-        public DragCallback callback;
-
-        public DrawerHolder(ViewDragHelper helper, DragCallback callback) {
-            this.helper=helper;
-            this.callback=callback;
+    static class DrawerHolder {
+        final DraggedDrawer drawer;
+        /**
+         * Animates the drawer from {@link #settleFrom} to {@link #settleTo}.
+         * Taken from the {@link ScrollerPool} while settling, <code>null</code> otherwise.
+         */
+        ScrollerCompat scroller;
+        float settleFrom;
+        float settleTo;
+        /** Whether the drawer is in the {@link DrawerSettler}'s active set */
+        boolean animating;
+        /** Whether the current settle follows a spring instead of {@link #scroller} */
+        boolean spring;
+        /** Spring start time, from {@link AnimationUtils#currentAnimationTimeMillis()} */
+        long settleStartTime;
+        /** Initial spring displacement from the destination, in the opening direction (pixels) */
+        float settleDisplacement;
+        /** Initial spring velocity in the opening direction (pixels/second) */
+        float settleVelocity;
+        /** Position of the fully open drawer, as laid out by the parent */
+        int openLeft;
+        int openTop;
+        /** Offset of the last slide callback */
+        float dispatchedOffset;
+        /** Whether a slide callback waits for the next frame */
+        boolean slidePending;
+        /** Whether the drawer settles to its destination after the next layout, once its new content is measured */
+        boolean settlePending;
+        /** Whether the content has been measured, laid out and drawn at least once */
+        boolean warm;
+        /** Whether the snapshot couldn't be captured, e.g. over budget, until the drawer closes again */
+        boolean snapshotDenied;
+        /** Whether resources were released under memory pressure, until the drawer is shown again */
+        boolean trimmed;
+        /** Shadow drawable bounds in {@link #SHADOW_DRAWABLE} mode */
+        final Rect shadowBounds = new Rect();
+        /** Shadow drawable alpha in {@link #SHADOW_DRAWABLE} mode.  0 if the shadow isn't drawn. */
+        int shadowAlpha;
+
+        DrawerHolder(DraggedDrawer drawer) {
+            this.drawer=drawer;
         }
     }
 }
\ No newline at end of file
@@ -2,31 +2,45 @@ package com.kedzie.drawer;
 
 import android.content.Context;
 import android.content.res.TypedArray;
-import android.graphics.Matrix;
-import android.graphics.Point;
-import android.graphics.Rect;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
 import android.graphics.drawable.Drawable;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.widget.ViewDragHelper;
 import android.util.AttributeSet;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewDebug;
 import android.view.ViewGroup;
+import android.view.ViewStub;
 
 /**
  * Draggable drawer with content and visible handle for all orientations.  For
  * dragging capabilities must be placed inside a {@link DragLayout}.
+ * <p>
+ * The content can be inflated lazily, either by pointing <code>contentId</code> at a {@link ViewStub}
+ * or by setting a {@link ContentFactory}.  It is then inflated the first time the drawer opens,
+ * its edge is touched or its handle is pressed.  Until then the drawer measures as its handle alone.
+ * </p>
  *
  * @attr R.styleable#Drawer_type
  * @attr R.styleable#Drawer_handleId
  * @attr R.styleable#Drawer_contentId
  * @attr R.styleable#Drawer_edgeDraggable
  * @attr R.styleable#Drawer_shadow
+ * @attr R.styleable#Drawer_keepContentMeasured
+ * @attr R.styleable#Drawer_layerPolicy
  * @see DragLayout
  */
 public class DraggedDrawer extends ViewGroup {
     private static final String TAG = "DraggedDrawer";
 
+    /** Number of MeasureSpec pairs remembered by the measurement cache */
+    private static final int MEASURE_CACHE_SIZE = 2;
+
     /**
      * Listener for monitoring events about drawers.
      */
@@ -64,6 +78,20 @@ public class DraggedDrawer extends ViewGroup {
         public void onDrawerStateChanged(int newState);
     }
 
+    /**
+     * Creates the content of a drawer the first time it is needed
+     * @see #setContentFactory(ContentFactory)
+     */
+    public interface ContentFactory {
+
+        /**
+         * Create the drawer content.  The returned view is added to the drawer.
+         * @param drawer    the drawer
+         * @return the content view
+         */
+        public View createContent(DraggedDrawer drawer);
+    }
+
     /**
      * Default implementation of {@link DrawerListener}
      */
@@ -91,11 +119,20 @@ public class DraggedDrawer extends ViewGroup {
     /** Indicates that a drawer is in the process of settling to a final position. */
     public static final int STATE_SETTLING = ViewDragHelper.STATE_SETTLING;
 
+    /** Content is rendered into a hardware layer only while the drawer is moving */
+    public static final int LAYER_AUTO = 0;
+    /** Content is always rendered into a hardware layer */
+    public static final int LAYER_ALWAYS = 1;
+    /** Content is never promoted to a hardware layer */
+    public static final int LAYER_NEVER = 2;
+
     /**
      * Drawer-specific event listener. For events relating to any drawer,
-     * see {@link #setDrawerListener(DrawerListener)}
+     * see {@link DragLayout#setDrawerListener(DragLayout.DrawerListener)}
      */
-    DrawerListener mListener;
+    private DrawerListener mListener;
+    /** All subscribed drawer-specific listeners, including {@link #mListener} */
+    private final ListenerRegistry<DrawerListener> mListeners = new ListenerRegistry<DrawerListener>();
 
     /** Handle size */
     private int mHandleSize;
@@ -124,14 +161,68 @@ public class DraggedDrawer extends ViewGroup {
 
     /** Drawer handle.  Maybe <code>null</code> */
     private View mHandle;
-    /** Drawer content */
+    /** Drawer content.  A {@link ViewStub} or <code>null</code> until lazy content is inflated. */
     private View mContent;
-    /** Drawable used for drop-shadow when drawer is visible */
+    /** Creates the content when it is first needed.  Maybe <code>null</code> */
+    private ContentFactory mContentFactory;
+    /** Stub the content was declared with, put back when the content is released.  Maybe <code>null</code> */
+    private ViewStub mContentStub;
+    /** Whether the content was inflated lazily, so it can be released and inflated again */
+    private boolean mContentReleasable;
+    /** Drawable used for drop-shadow when drawer is visible.  Loaded from {@link #mShadowResId} on first use. */
     private Drawable mShadowDrawable;
+    /** Resource id of the shadow drawable, 0 if none or set in code */
+    private int mShadowResId;
     /** Current state i.e. {@link #STATE_DRAGGING} {@link #STATE_IDLE} */
     int mState;
     /** Drawer is Settling to this destination offset */
     float destinationOffset;
+    /** Content is visible but transparent, ahead of a probable drag */
+    private boolean mPrewarming;
+    /** Content alpha to restore when the prewarm ends */
+    private float mPrewarmAlpha;
+    /** Whether the drawer has been drawn since the prewarm started */
+    private boolean mPrewarmDrawn;
+    /** Bitmap of the content, drawn in its place while {@link #mShowSnapshot}.  Maybe <code>null</code> */
+    private Bitmap mSnapshot;
+    /** Whether {@link #mSnapshot} still matches the content */
+    private boolean mSnapshotValid;
+    /** Whether the snapshot is drawn instead of the live content */
+    private boolean mShowSnapshot;
+    /** Whether {@link #mSnapshot} has been drawn since it was captured, so a hardware renderer has uploaded it */
+    private boolean mSnapshotUploaded;
+    /** Whether the last recorded frame draws the snapshot to upload it */
+    private boolean mSnapshotRecorded;
+    /** Applies the content alpha to the snapshot */
+    private final Paint mSnapshotPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    /** Set while the drawer changes the content visibility, which doesn't invalidate the snapshot */
+    private boolean mChangingVisibility;
+    /** Index of the drawer in its {@link DragLayout}'s registry.  -1 if not in a layout. */
+    int mSlot = -1;
+
+    /** Closed content is hidden with {@link View#INVISIBLE} instead of {@link View#GONE} */
+    @ViewDebug.ExportedProperty(category = "layout")
+    private boolean mKeepContentMeasured;
+
+    /** {@link #LAYER_AUTO}, {@link #LAYER_ALWAYS} or {@link #LAYER_NEVER} */
+    @ViewDebug.ExportedProperty(category = "drawing")
+    private int mLayerPolicy;
+
+    /**
+     * Measurements of the handle/content pair for the last few MeasureSpecs.  The parent may measure
+     * the drawer several times per pass with alternating constraints, which are answered from here
+     * until a child requests a layout.
+     */
+    private final MeasureEntry[] mMeasureCache = new MeasureEntry[MEASURE_CACHE_SIZE];
+    private int mMeasureCacheCount;
+    private int mNextMeasureEntry;
+    /** Entry of the last {@link #onMeasure(int, int)} */
+    private MeasureEntry mCurrentMeasure;
+    /** Entry whose MeasureSpecs the children were last measured with */
+    private MeasureEntry mChildrenMeasure;
+
+    /** Reusable handle hit test state */
+    private final HandleHitTester mHitTester = new HandleHitTester();
 
 
     public DraggedDrawer(Context context) {
@@ -145,8 +236,13 @@ public class DraggedDrawer extends ViewGroup {
             mDrawerType = a.getInt(R.styleable.Drawer_type, DRAWER_LEFT);
             mHandleId = a.getResourceId(R.styleable.Drawer_handleId, -1);
             mContentId = a.getResourceId(R.styleable.Drawer_contentId, -1);
-            mShadowDrawable = a.getDrawable(R.styleable.Drawer_shadow);
+            //shadow drawables are only decoded when the drawer first opens
+            mShadowResId = a.getResourceId(R.styleable.Drawer_shadow, 0);
+            if(mShadowResId==0)
+                mShadowDrawable = a.getDrawable(R.styleable.Drawer_shadow);
             mEdgeDraggable = a.getBoolean(R.styleable.Drawer_edgeDraggable, false);
+            mKeepContentMeasured = a.getBoolean(R.styleable.Drawer_keepContentMeasured, false);
+            mLayerPolicy = a.getInt(R.styleable.Drawer_layerPolicy, LAYER_AUTO);
             if(mEdgeDraggable && mHandleId!=0)
                 throw  new IllegalStateException("Drawer cannot have handle and be edge draggable");
         } finally {
@@ -159,10 +255,70 @@ public class DraggedDrawer extends ViewGroup {
         super.onFinishInflate();
         mHandle = findViewById(mHandleId);
         mContent = findViewById(mContentId);
+        if(mContent instanceof ViewStub)
+            mContentStub = (ViewStub) mContent;
+        updateContentLayer();
     }
 
     @Override
     protected void onMeasure(int wSpec, int hSpec) {
+        for(int i=0; i<mMeasureCacheCount; i++) {
+            final MeasureEntry entry = mMeasureCache[i];
+            if(entry.wSpec==wSpec && entry.hSpec==hSpec) {
+                mHandleWidth = entry.handleWidth;
+                mHandleHeight = entry.handleHeight;
+                mHandleSize = entry.handleSize;
+                mContentWidth = entry.contentWidth;
+                mContentHeight = entry.contentHeight;
+                mCurrentMeasure = entry;
+                setMeasuredDimension(entry.width, entry.height);
+                return;
+            }
+        }
+
+        measureHandleAndContent(wSpec, hSpec);
+
+        int dw = mHandleWidth;
+        int dh = mHandleHeight;
+        if(mContent!=null) {
+            switch(mDrawerType) {
+                case DRAWER_BOTTOM:
+                case DRAWER_TOP:
+                    dw += Math.max(mHandleWidth, mContentWidth);
+                    dh += mContentHeight;
+                    break;
+                case DRAWER_LEFT:
+                case DRAWER_RIGHT:
+                    dw += mContentWidth;
+                    dh += Math.max(mHandleHeight, mContentHeight);
+                    break;
+            }
+        }
+        final int width = resolveSize(dw, wSpec);
+        final int height = resolveSize(dh, hSpec);
+        setMeasuredDimension(width, height);
+
+        MeasureEntry entry = mMeasureCache[mNextMeasureEntry];
+        if(entry==null)
+            entry = mMeasureCache[mNextMeasureEntry] = new MeasureEntry();
+        mNextMeasureEntry = (mNextMeasureEntry+1) % MEASURE_CACHE_SIZE;
+        mMeasureCacheCount = Math.min(mMeasureCacheCount+1, MEASURE_CACHE_SIZE);
+        entry.wSpec = wSpec;
+        entry.hSpec = hSpec;
+        entry.width = width;
+        entry.height = height;
+        entry.handleWidth = mHandleWidth;
+        entry.handleHeight = mHandleHeight;
+        entry.handleSize = mHandleSize;
+        entry.contentWidth = mContentWidth;
+        entry.contentHeight = mContentHeight;
+        mCurrentMeasure = mChildrenMeasure = entry;
+    }
+
+    /**
+     * Measure the handle and content for the given drawer constraints
+     */
+    private void measureHandleAndContent(int wSpec, int hSpec) {
         int wSpecMode = MeasureSpec.getMode(wSpec);
         int wSpecSize = MeasureSpec.getSize(wSpec);
         int hSpecMode = MeasureSpec.getMode(hSpec);
@@ -175,38 +331,43 @@ public class DraggedDrawer extends ViewGroup {
             mHandleSize = (mDrawerType==DRAWER_LEFT || mDrawerType==DRAWER_RIGHT) ? mHandleWidth : mHandleHeight;
         }
 
-        int dw = mHandleWidth;
-        int dh = mHandleHeight;
-
-        if(mContent!=null) {
+        if(mContent!=null && mContent.getVisibility()!=GONE) {
             switch(mDrawerType) {
                 case DRAWER_BOTTOM:
                 case DRAWER_TOP:
-                    if(mContent.getVisibility()!=GONE) {
-                        measureChild(mContent, wSpec, MeasureSpec.makeMeasureSpec(hSpecSize-mHandleHeight, hSpecMode));
-                        mContentWidth = mContent.getMeasuredWidth();
-                        mContentHeight = mContent.getMeasuredHeight();
-                    }
-                    dw += Math.max(mHandleWidth, mContentWidth);
-                    dh += mContentHeight;
+                    measureChild(mContent, wSpec, MeasureSpec.makeMeasureSpec(hSpecSize-mHandleHeight, hSpecMode));
                     break;
                 case DRAWER_LEFT:
                 case DRAWER_RIGHT:
-                    if(mContent.getVisibility()!=GONE) {
-                        measureChild(mContent, MeasureSpec.makeMeasureSpec(wSpecSize-mHandleWidth, wSpecMode), hSpec);
-                        mContentWidth = mContent.getMeasuredWidth();
-                        mContentHeight = mContent.getMeasuredHeight();
-                    }
-                    dw += mContentWidth;
-                    dh += Math.max(mHandleHeight, mContentHeight);
+                    measureChild(mContent, MeasureSpec.makeMeasureSpec(wSpecSize-mHandleWidth, wSpecMode), hSpec);
                     break;
             }
+            mContentWidth = mContent.getMeasuredWidth();
+            mContentHeight = mContent.getMeasuredHeight();
         }
-        setMeasuredDimension(resolveSize(dw, wSpec), resolveSize(dh, hSpec));
+    }
+
+    /**
+     * Drop cached measurements.  Called whenever the drawer or one of its children requests a layout.
+     */
+    private void invalidateMeasureCache() {
+        mMeasureCacheCount = 0;
+        mNextMeasureEntry = 0;
+        mCurrentMeasure = null;
+        mChildrenMeasure = null;
+    }
+
+    @Override
+    public void forceLayout() {
+        invalidateMeasureCache();
+        super.forceLayout();
     }
 
     @Override
     public void requestLayout() {
+        if(!mChangingVisibility)
+            mSnapshotValid = false;
+        invalidateMeasureCache();
         if(!mInLayout)
             super.requestLayout();
     }
@@ -214,6 +375,11 @@ public class DraggedDrawer extends ViewGroup {
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         mInLayout=true;
+        //the last measurement came from the cache, bring the children in line with it
+        if(mCurrentMeasure!=null && mCurrentMeasure!=mChildrenMeasure) {
+            measureHandleAndContent(mCurrentMeasure.wSpec, mCurrentMeasure.hSpec);
+            mChildrenMeasure = mCurrentMeasure;
+        }
         int handleTop=0, handleLeft=0;
 
         if(mHandle!=null) {
@@ -278,11 +444,205 @@ public class DraggedDrawer extends ViewGroup {
     }
 
     /**
-     * Subscribe to drawer events
-     * @param listener  the listener
+     * Subscribe to drawer events, replacing the listener previously set by this method
+     * @param listener  the listener, or <code>null</code>
+     * @see #addDrawerListener(DrawerListener, int)
      */
     public void setDrawerListener(DrawerListener listener) {
+        if(mListener!=null)
+            mListeners.remove(mListener);
         mListener = listener;
+        if(listener!=null)
+            mListeners.add(listener, DragLayout.EVENT_ALL);
+    }
+
+    /**
+     * Subscribe a listener to all drawer events
+     * @param listener  the listener
+     */
+    public void addDrawerListener(DrawerListener listener) {
+        addDrawerListener(listener, DragLayout.EVENT_ALL);
+    }
+
+    /**
+     * Subscribe a listener to some drawer events.  Slide events, which are dispatched
+     * every frame while the drawer moves, only reach listeners which asked for them.
+     * @param listener  the listener
+     * @param events    mask of {@link DragLayout#EVENT_SLIDE}, {@link DragLayout#EVENT_OPENED},
+     *                  {@link DragLayout#EVENT_OPENING}, {@link DragLayout#EVENT_CLOSED}
+     *                  and {@link DragLayout#EVENT_STATE}
+     */
+    public void addDrawerListener(DrawerListener listener, int events) {
+        mListeners.add(listener, events);
+    }
+
+    /**
+     * Unsubscribe a listener
+     * @param listener  the listener
+     */
+    public void removeDrawerListener(DrawerListener listener) {
+        if(listener==mListener)
+            mListener = null;
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Does any listener want an event?
+     * @param event <code>DragLayout.EVENT_*</code> flag
+     */
+    boolean wantsEvent(int event) {
+        return mListeners.wants(event);
+    }
+
+    void dispatchSlide(float slideOffset) {
+        if(!mListeners.wants(DragLayout.EVENT_SLIDE))
+            return;
+        final ListenerRegistry.Entry<DrawerListener>[] entries = mListeners.entries();
+        for(int i=0; i<entries.length; i++) {
+            if((entries[i].events & DragLayout.EVENT_SLIDE)!=0)
+                entries[i].listener.onDrawerSlide(slideOffset);
+        }
+    }
+
+    void dispatchOpened() {
+        final ListenerRegistry.Entry<DrawerListener>[] entries = mListeners.entries();
+        for(int i=0; i<entries.length; i++) {
+            if((entries[i].events & DragLayout.EVENT_OPENED)!=0)
+                entries[i].listener.onDrawerOpened();
+        }
+    }
+
+    void dispatchOpening() {
+        final ListenerRegistry.Entry<DrawerListener>[] entries = mListeners.entries();
+        for(int i=0; i<entries.length; i++) {
+            if((entries[i].events & DragLayout.EVENT_OPENING)!=0)
+                entries[i].listener.onDrawerOpening();
+        }
+    }
+
+    void dispatchClosed() {
+        final ListenerRegistry.Entry<DrawerListener>[] entries = mListeners.entries();
+        for(int i=0; i<entries.length; i++) {
+            if((entries[i].events & DragLayout.EVENT_CLOSED)!=0)
+                entries[i].listener.onDrawerClosed();
+        }
+    }
+
+    void dispatchStateChanged(int newState) {
+        final ListenerRegistry.Entry<DrawerListener>[] entries = mListeners.entries();
+        for(int i=0; i<entries.length; i++) {
+            if((entries[i].events & DragLayout.EVENT_STATE)!=0)
+                entries[i].listener.onDrawerStateChanged(newState);
+        }
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        if(child==mContent && mShowSnapshot) {
+            //swap back to the live content once it is idle and laid out
+            if(mSnapshot!=null && (mState!=STATE_IDLE || child.isLayoutRequested())) {
+                final float alpha = ViewCompat.getAlpha(child);
+                if(alpha>0f) {
+                    mSnapshotPaint.setAlpha((int) (alpha*255));
+                    canvas.drawBitmap(mSnapshot, child.getLeft()+ViewCompat.getTranslationX(child),
+                            child.getTop()+ViewCompat.getTranslationY(child), mSnapshotPaint);
+                }
+                return false;
+            }
+            mShowSnapshot = false;
+        }
+        return super.drawChild(canvas, child, drawingTime);
+    }
+
+    /**
+     * Draw the content into the snapshot bitmap, reusing it if the size didn't change.
+     * The content must be laid out.
+     * @return true if the snapshot was captured
+     */
+    boolean captureSnapshot() {
+        if(!isContentInflated())
+            return false;
+        final int width = mContent.getWidth();
+        final int height = mContent.getHeight();
+        if(width<=0 || height<=0)
+            return false;
+        if(mSnapshot!=null && mSnapshot.getWidth()==width && mSnapshot.getHeight()==height) {
+            mSnapshot.eraseColor(Color.TRANSPARENT);
+        } else {
+            releaseSnapshot();
+            try {
+                mSnapshot = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            } catch(OutOfMemoryError e) {
+                return false;
+            }
+        }
+        final Canvas canvas = new Canvas(mSnapshot);
+        canvas.translate(-mContent.getScrollX(), -mContent.getScrollY());
+        mContent.draw(canvas);
+        mSnapshotValid = true;
+        //upload the bitmap now instead of on the first drag frame, see dispatchDraw
+        mSnapshot.prepareToDraw();
+        mSnapshotUploaded = false;
+        if(isHardwareAccelerated())
+            invalidate();
+        return true;
+    }
+
+    /**
+     * Drop the snapshot bitmap
+     * @return bytes released
+     */
+    int releaseSnapshot() {
+        final int bytes = getSnapshotBytes();
+        if(mSnapshot!=null) {
+            if(mShowSnapshot || mSnapshotRecorded) {
+                //the last recorded frame still draws the bitmap, leave it to the garbage collector
+                mShowSnapshot = false;
+                mSnapshotRecorded = false;
+                invalidate();
+            } else {
+                mSnapshot.recycle();
+            }
+            mSnapshot = null;
+        }
+        mSnapshotValid = false;
+        mShowSnapshot = false;
+        return bytes;
+    }
+
+    /**
+     * Memory held by the snapshot
+     * @return size of the snapshot bitmap, 0 if none
+     */
+    int getSnapshotBytes() {
+        return mSnapshot!=null ? mSnapshot.getByteCount() : 0;
+    }
+
+    /**
+     * Is there a snapshot which matches the content?
+     * @return true if the snapshot can be shown
+     */
+    boolean isSnapshotValid() {
+        return mSnapshot!=null && mSnapshotValid;
+    }
+
+    /**
+     * Draw the snapshot instead of the content until the drawer is idle and the content is laid out
+     */
+    void showSnapshot() {
+        if(isSnapshotValid()) {
+            mShowSnapshot = true;
+            invalidate();
+        }
+    }
+
+    /**
+     * Mark the snapshot as stale after a change of the content which doesn't request a layout, e.g.
+     * new image or text of the same size.  Layout requests from the content invalidate it automatically.
+     * A new snapshot is captured the next time the main thread is idle.
+     */
+    public void invalidateSnapshot() {
+        mSnapshotValid = false;
     }
 
     /**
@@ -298,10 +658,93 @@ public class DraggedDrawer extends ViewGroup {
      * This will alter the content visibility and make needed offsets to
      * maintain consistent view location.
      * <pre>drawer.getContent().setVisibility(View.GONE);</pre>
+     * <p>
+     * When the content is kept measured {@link View#GONE} is replaced by {@link View#INVISIBLE}, so
+     * the closed content keeps its layout but isn't drawn, touched or reported to accessibility.
+     * </p>
      * @param visibility    Desired visibilty. i.e. {@link View#VISIBLE} {@link View#INVISIBLE} or {@link View#GONE}
      */
     void setContentVisibility(int visibility) {
-        mContent.setVisibility(visibility);
+        if(visibility==View.VISIBLE)
+            inflateContent();
+        else if(!isContentInflated())
+            return;
+        if(visibility==View.GONE && mKeepContentMeasured)
+            visibility=View.INVISIBLE;
+        changeContentVisibility(visibility);
+        if(mPrewarming) {
+            mPrewarming=false;
+            ViewCompat.setAlpha(mContent, mPrewarmAlpha);
+            updateContentLayer();
+        }
+    }
+
+    /**
+     * Get a closed drawer ready to be dragged.  The content is made visible but transparent, so it is
+     * measured, laid out and recorded, and promoted to a layer if the layer policy is {@link #LAYER_AUTO}.
+     * Ends when the content is shown or hidden, or by {@link #cancelPrewarm()}.
+     * @param inflate   whether lazy content is inflated first.  Otherwise a drawer whose content isn't
+     *                  inflated yet isn't prewarmed.
+     */
+    void prewarm(boolean inflate) {
+        if(inflate)
+            inflateContent();
+        if(mPrewarming || !isContentInflated() || mContent.getVisibility()==View.VISIBLE)
+            return;
+        mPrewarming=true;
+        mPrewarmDrawn=false;
+        mPrewarmAlpha=ViewCompat.getAlpha(mContent);
+        ViewCompat.setAlpha(mContent, 0f);
+        changeContentVisibility(View.VISIBLE);
+        updateContentLayer();
+    }
+
+    private void changeContentVisibility(int visibility) {
+        mChangingVisibility = true;
+        try {
+            mContent.setVisibility(visibility);
+        } finally {
+            mChangingVisibility = false;
+        }
+    }
+
+    /**
+     * Hide the content again if the drawer was prewarmed but never opened
+     */
+    void cancelPrewarm() {
+        if(mPrewarming)
+            setContentVisibility(View.GONE);
+    }
+
+    /**
+     * Is the content visible only because the drawer is prewarmed?
+     * @return true while prewarmed
+     */
+    boolean isPrewarming() {
+        return mPrewarming;
+    }
+
+    /**
+     * Has the prewarmed content been recorded?
+     * @return true if the drawer was drawn since the prewarm started
+     */
+    boolean isPrewarmDrawn() {
+        return mPrewarming && mPrewarmDrawn;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if(mPrewarming)
+            mPrewarmDrawn = true;
+        mSnapshotRecorded = mSnapshot!=null && !mSnapshotUploaded && !mShowSnapshot && canvas.isHardwareAccelerated();
+        if(mSnapshotRecorded) {
+            //a transparent draw records the bitmap, so the renderer uploads it with this frame
+            mSnapshotPaint.setAlpha(0);
+            canvas.drawBitmap(mSnapshot, 0, 0, mSnapshotPaint);
+        }
+        if(mSnapshot!=null)
+            mSnapshotUploaded = true;
     }
 
     /**
@@ -314,18 +757,117 @@ public class DraggedDrawer extends ViewGroup {
 
     public void setHandle(View handle) {
         mHandle = handle;
+        invalidateMeasureCache();
     }
 
     /**
-     * Get the drawer content
+     * Get the drawer content, inflating it if it is lazy
      * @return  drawer content view
      */
     public View getContent() {
+        inflateContent();
         return mContent;
     }
 
+    /**
+     * Get the drawer content without inflating it
+     * @return  drawer content view, or <code>null</code> if lazy content isn't inflated yet
+     */
+    View peekContent() {
+        return isContentInflated() ? mContent : null;
+    }
+
     public void setContent(View content) {
+        mContentStub=null;
+        setContentInternal(content, false);
+    }
+
+    private void setContentInternal(View content, boolean releasable) {
+        releaseSnapshot();
         mContent=content;
+        mContentReleasable=releasable;
+        invalidateMeasureCache();
+        updateContentLayer();
+    }
+
+    /**
+     * Set the factory which creates the content the first time it is needed.
+     * Only used if the drawer has no content.
+     * @param factory   the factory, or <code>null</code>
+     */
+    public void setContentFactory(ContentFactory factory) {
+        mContentFactory = factory;
+    }
+
+    /**
+     * Whether the content exists, i.e. it isn't lazy or has been inflated
+     * @return true if the content is inflated
+     */
+    public boolean isContentInflated() {
+        return mContent!=null && !(mContent instanceof ViewStub);
+    }
+
+    /**
+     * Inflate lazy content now, e.g. ahead of opening the drawer.  Does nothing if the content
+     * is already inflated.  The inflated content is visible, the {@link DragLayout} hides it at its
+     * next layout if the drawer is closed.
+     * @return true if the content was inflated by this call
+     */
+    public boolean inflateContent() {
+        final View content;
+        if(mContent instanceof ViewStub) {
+            content = ((ViewStub) mContent).inflate();
+        } else if(mContent==null && mContentFactory!=null) {
+            content = mContentFactory.createContent(this);
+            if(content==null)
+                return false;
+            //keep the handle on top of the content
+            addView(content, 0);
+        } else {
+            return false;
+        }
+        setContentInternal(content, true);
+        return true;
+    }
+
+    /**
+     * Remove lazily inflated content, putting back its {@link ViewStub}, so it is inflated again when next needed
+     * @return true if the content was released
+     */
+    boolean releaseContent() {
+        if(!mContentReleasable || !isContentInflated())
+            return false;
+        final int index = indexOfChild(mContent);
+        removeView(mContent);
+        if(mContentStub!=null)
+            addView(mContentStub, index);
+        mContentWidth = 0;
+        mContentHeight = 0;
+        setContentInternal(mContentStub, false);
+        return true;
+    }
+
+    /**
+     * Drop the hardware layer of the content.  The layer policy is applied again on the next state change.
+     * @return estimated bytes released
+     */
+    int releaseLayer() {
+        if(!isContentInflated() || ViewCompat.getLayerType(mContent)==ViewCompat.LAYER_TYPE_NONE)
+            return 0;
+        ViewCompat.setLayerType(mContent, ViewCompat.LAYER_TYPE_NONE, null);
+        return mContent.getWidth()*mContent.getHeight()*4;
+    }
+
+    /**
+     * Drop a shadow drawable set in XML.  It is loaded again on first use.
+     * @return estimated bytes released
+     */
+    int releaseShadow() {
+        if(mShadowResId==0 || mShadowDrawable==null)
+            return 0;
+        final int bytes = Math.max(0, mShadowDrawable.getIntrinsicWidth()) * Math.max(0, mShadowDrawable.getIntrinsicHeight()) * 4;
+        mShadowDrawable = null;
+        return bytes;
     }
 
     /**
@@ -338,18 +880,22 @@ public class DraggedDrawer extends ViewGroup {
 
     public void setDrawerType(int type) {
         mDrawerType=type;
+        invalidateMeasureCache();
     }
 
     /**
-     * Get drawable to represent the drawer's shadow
-     * @return
+     * Get drawable to represent the drawer's shadow.  A shadow set in XML is loaded on the first call.
+     * @return the shadow drawable, or <code>null</code> if none
      */
     public Drawable getShadowDrawable() {
+        if(mShadowDrawable==null && mShadowResId!=0)
+            mShadowDrawable = ContextCompat.getDrawable(getContext(), mShadowResId);
         return mShadowDrawable;
     }
 
     public void setShadowDrawable(Drawable shadow) {
         mShadowDrawable=shadow;
+        mShadowResId=0;
     }
 
     /**
@@ -363,6 +909,62 @@ public class DraggedDrawer extends ViewGroup {
 
     void setDrawerState(int drawerState) {
         mState=drawerState;
+        updateContentLayer();
+        //swap the snapshot for the live content
+        if(mShowSnapshot && drawerState==STATE_IDLE)
+            invalidate();
+    }
+
+    /**
+     * Set when the drawer content is rendered into a hardware layer.
+     * With {@link #LAYER_AUTO} the content is only promoted while the drawer is dragged or settling,
+     * so moving it only composites the layer and no GPU memory is held while idle.
+     * @param policy    {@link #LAYER_AUTO}, {@link #LAYER_ALWAYS} or {@link #LAYER_NEVER}
+     */
+    public void setLayerPolicy(int policy) {
+        mLayerPolicy=policy;
+        updateContentLayer();
+    }
+
+    /**
+     * When the drawer content is rendered into a hardware layer
+     * @return {@link #LAYER_AUTO}, {@link #LAYER_ALWAYS} or {@link #LAYER_NEVER}
+     */
+    public int getLayerPolicy() {
+        return mLayerPolicy;
+    }
+
+    /**
+     * Apply the layer policy to the content for the current state
+     */
+    private void updateContentLayer() {
+        if(!isContentInflated())
+            return;
+        final boolean layer = mLayerPolicy==LAYER_ALWAYS
+                || mLayerPolicy==LAYER_AUTO && (mState!=STATE_IDLE || mPrewarming);
+        final int layerType = layer ? ViewCompat.LAYER_TYPE_HARDWARE : ViewCompat.LAYER_TYPE_NONE;
+        if(ViewCompat.getLayerType(mContent)!=layerType)
+            ViewCompat.setLayerType(mContent, layerType, null);
+    }
+
+    /**
+     * Keep the content measured and laid out while the drawer is closed.
+     * Opening the drawer then only has to show the content, without a measure/layout pass of
+     * the drawer subtree.
+     * @param keepContentMeasured   whether closed content is kept measured
+     */
+    public void setKeepContentMeasured(boolean keepContentMeasured) {
+        mKeepContentMeasured=keepContentMeasured;
+        if(!isContentInflated())
+            return;
+        if(keepContentMeasured && mContent.getVisibility()==View.GONE)
+            setContentVisibility(View.INVISIBLE);
+        else if(!keepContentMeasured && mContent.getVisibility()==View.INVISIBLE)
+            setContentVisibility(View.GONE);
+    }
+
+    public boolean isKeepContentMeasured() {
+        return mKeepContentMeasured;
     }
 
     public boolean isEdgeDraggable() {
@@ -374,26 +976,7 @@ public class DraggedDrawer extends ViewGroup {
     }
 
     boolean isHandleHit(int x, int y) {
-        if(mHandle==null) return false;
-        Rect handleHit = new Rect();
-        mHandle.getHitRect(handleHit);
-        Point point = mapPoint(this, new Point(x, y));
-        return handleHit.contains(point.x, point.y);
-    }
-
-    private static Point mapPoint(View view, Point point) {
-        Point mapped = new Point(point.x, point.y);
-        Matrix matrix = view.getMatrix();
-        if(!matrix.isIdentity()) {
-            Matrix inverse = new Matrix();
-            matrix.invert(inverse);
-            float []n = { point.x, point.y };
-            matrix.mapPoints(n);
-            mapped.x= (int) n[0];
-            mapped.y= (int) n[1];
-        }
-        mapped.offset(-view.getLeft(), -view.getTop());
-        return mapped;
+        return mHitTester.isHandleHit(this, mHandle, x, y);
     }
 
     @Override
@@ -461,4 +1044,19 @@ public class DraggedDrawer extends ViewGroup {
             super(source);
         }
     }
+
+    /**
+     * Measurement of the drawer for one pair of MeasureSpecs
+     */
+    private static class MeasureEntry {
+        int wSpec;
+        int hSpec;
+        int width;
+        int height;
+        int handleWidth;
+        int handleHeight;
+        int handleSize;
+        int contentWidth;
+        int contentHeight;
+    }
 }
@@ -2,9 +2,6 @@ package com.kedzie.drawer;
 
 import android.content.Context;
 import android.content.res.TypedArray;
-import android.graphics.Matrix;
-import android.graphics.Point;
-import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.support.v4.widget.ViewDragHelper;
 import android.util.AttributeSet;
@@ -24,6 +21,7 @@ import android.widget.LinearLayout;
  * @attr R.styleable#Drawer_contentId
  * @attr R.styleable#Drawer_edgeDraggable
  * @attr R.styleable#Drawer_shadow
+ * @attr R.styleable#Drawer_keepContentMeasured
  */
 public class DraggedDrawerLL extends LinearLayout {
     public static final String TAG = "DraggedDrawer";
@@ -129,6 +127,13 @@ public class DraggedDrawerLL extends LinearLayout {
     /** Drawer is Settling to this destination offset */
     float destinationOffset;
 
+    /** Closed content is hidden with {@link View#INVISIBLE} instead of {@link View#GONE} */
+    @ViewDebug.ExportedProperty(category = "layout")
+    private boolean mKeepContentMeasured;
+
+    /** Reusable handle hit test state */
+    private final HandleHitTester mHitTester = new HandleHitTester();
+
     public DraggedDrawerLL(Context context, AttributeSet attrs) {
         super(context, attrs);
         TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.Drawer, 0, 0);
@@ -138,6 +143,7 @@ public class DraggedDrawerLL extends LinearLayout {
             mContentId = a.getResourceId(R.styleable.Drawer_contentId, -1);
             mShadowDrawable = a.getDrawable(R.styleable.Drawer_shadow);
             mEdgeDraggable = a.getBoolean(R.styleable.Drawer_edgeDraggable, false);
+            mKeepContentMeasured = a.getBoolean(R.styleable.Drawer_keepContentMeasured, false);
             if(mEdgeDraggable && mHandleId!=0)
                 throw  new IllegalStateException("Drawer cannot have handle and be edge draggable");
         } finally {
@@ -199,9 +205,15 @@ public class DraggedDrawerLL extends LinearLayout {
      * This will alter the content visibility and make needed offsets to
      * maintain consistent view location.
      * <pre>drawer.getContent().setVisibility(View.GONE);</pre>
+     * <p>
+     * When the content is kept measured {@link View#GONE} is replaced by {@link View#INVISIBLE}, so
+     * the closed content keeps its layout but isn't drawn, touched or reported to accessibility.
+     * </p>
      * @param visibility    Desired visibilty. i.e. {@link View#VISIBLE} {@link View#INVISIBLE} or {@link View#GONE}
      */
     void setContentVisibility(int visibility) {
+        if(visibility==View.GONE && mKeepContentMeasured)
+            visibility=View.INVISIBLE;
         if(mContent==null) return;
         if(visibility==View.GONE && mContent.getVisibility()!=View.GONE) {
             Log.v(TAG, "Hiding drawer content");
@@ -282,6 +294,26 @@ public class DraggedDrawerLL extends LinearLayout {
         mState=drawerState;
     }
 
+    /**
+     * Keep the content measured and laid out while the drawer is closed.
+     * Opening the drawer then only has to show the content, without a measure/layout pass of
+     * the drawer subtree.
+     * @param keepContentMeasured   whether closed content is kept measured
+     */
+    public void setKeepContentMeasured(boolean keepContentMeasured) {
+        mKeepContentMeasured=keepContentMeasured;
+        if(mContent==null)
+            return;
+        if(keepContentMeasured && mContent.getVisibility()==View.GONE)
+            setContentVisibility(View.INVISIBLE);
+        else if(!keepContentMeasured && mContent.getVisibility()==View.INVISIBLE)
+            setContentVisibility(View.GONE);
+    }
+
+    public boolean isKeepContentMeasured() {
+        return mKeepContentMeasured;
+    }
+
     public boolean isEdgeDraggable() {
         return mEdgeDraggable;
     }
@@ -299,25 +331,6 @@ public class DraggedDrawerLL extends LinearLayout {
     }
 
     boolean isHandleHit(int x, int y) {
-        if(mHandle==null) return false;
-        Rect handleHit = new Rect();
-        mHandle.getHitRect(handleHit);
-        Point point = mapPoint(this, new Point(x, y));
-        return handleHit.contains(point.x, point.y);
-    }
-
-    private static Point mapPoint(View view, Point point) {
-        Point mapped = new Point(point.x, point.y);
-        Matrix matrix = view.getMatrix();
-        if(!matrix.isIdentity()) {
-            Matrix inverse = new Matrix();
-            matrix.invert(inverse);
-            float []n = { point.x, point.y };
-            matrix.mapPoints(n);
-            mapped.x= (int) n[0];
-            mapped.y= (int) n[1];
-        }
-        mapped.offset(-view.getLeft(), -view.getTop());
-        return mapped;
+        return mHitTester.isHandleHit(this, mHandle, x, y);
     }
 }
@@ -0,0 +1,113 @@
+package com.kedzie.drawer;
+
+import android.support.v4.view.ViewCompat;
+
+import com.kedzie.drawer.DragLayout.DrawerHolder;
+
+/**
+ * Frame driven settle engine for the drawers of a {@link DragLayout}.
+ * <p>
+ * Keeps an explicit set of the drawers which are currently animating and advances only those
+ * once per animation frame.  The frame callback is only posted while the set is non-empty, so an
+ * idle layout does no drawer work at all.
+ * </p>
+ */
+class DrawerSettler implements Runnable {
+
+    private final DragLayout mLayout;
+
+    /** Drawers currently animating */
+    private DrawerHolder[] mActive = new DrawerHolder[4];
+    private int mActiveCount;
+    /** Reusable copy of {@link #mActive} for the current frame, since callbacks may change the set */
+    private DrawerHolder[] mFrame = new DrawerHolder[4];
+
+    /** Whether a frame callback is pending */
+    private boolean mScheduled;
+
+    DrawerSettler(DragLayout layout) {
+        mLayout = layout;
+    }
+
+    /**
+     * Start advancing a drawer every frame
+     * @param holder    the settling drawer
+     */
+    void start(DrawerHolder holder) {
+        if(!holder.animating) {
+            if(mActiveCount==mActive.length) {
+                final DrawerHolder[] active = new DrawerHolder[mActiveCount*2];
+                System.arraycopy(mActive, 0, active, 0, mActiveCount);
+                mActive = active;
+            }
+            mActive[mActiveCount++] = holder;
+            holder.animating = true;
+        }
+        schedule();
+    }
+
+    /**
+     * Stop advancing a drawer
+     * @param holder    the drawer
+     */
+    void stop(DrawerHolder holder) {
+        if(!holder.animating)
+            return;
+        holder.animating = false;
+        for(int i=0; i<mActiveCount; i++) {
+            if(mActive[i]==holder) {
+                mActive[i] = mActive[--mActiveCount];
+                mActive[mActiveCount] = null;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Is any drawer animating?
+     * @return true if the set of animating drawers is non-empty
+     */
+    boolean isActive() {
+        return mActiveCount>0;
+    }
+
+    /**
+     * Post the frame callback if any drawer is animating.
+     * Called again when the layout is re-attached.
+     */
+    void schedule() {
+        if(mScheduled || mActiveCount==0)
+            return;
+        mScheduled = true;
+        ViewCompat.postOnAnimation(mLayout, this);
+    }
+
+    /**
+     * Remove the pending frame callback.  The set of animating drawers is kept.
+     */
+    void unschedule() {
+        mLayout.removeCallbacks(this);
+        mScheduled = false;
+    }
+
+    @Override
+    public void run() {
+        mScheduled = false;
+        final int count = mActiveCount;
+        if(mFrame.length<count)
+            mFrame = new DrawerHolder[mActive.length];
+        System.arraycopy(mActive, 0, mFrame, 0, count);
+        mLayout.beginSettleFrame();
+        try {
+            for(int i=0; i<count; i++) {
+                final DrawerHolder holder = mFrame[i];
+                mFrame[i] = null;
+                if(holder.animating && !mLayout.continueSettling(holder))
+                    stop(holder);
+            }
+        } finally {
+            mLayout.endSettleFrame();
+        }
+        schedule();
+    }
+}
@@ -0,0 +1,57 @@
+package com.kedzie.drawer;
+
+import android.annotation.TargetApi;
+import android.graphics.Outline;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewOutlineProvider;
+
+/**
+ * Drawer shadows cast by view elevation.  The shadow is rendered by the render thread and
+ * moves with the drawer, so it never has to be recorded by the parent.
+ * <p>
+ * Only referenced on {@link Build.VERSION_CODES#LOLLIPOP} and above.
+ * </p>
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class ElevationShadow {
+
+    /** Outlines the drawer content, so the handle doesn't cast a shadow */
+    private static final ViewOutlineProvider CONTENT_OUTLINE = new ViewOutlineProvider() {
+        @Override
+        public void getOutline(View view, Outline outline) {
+            final View content = ((DraggedDrawer) view).peekContent();
+            if(content!=null)
+                outline.setRect(content.getLeft(), content.getTop(), content.getRight(), content.getBottom());
+            else
+                outline.setEmpty();
+        }
+    };
+
+    private ElevationShadow() {}
+
+    /**
+     * Cast the drawer's shadow from its content outline
+     * @param drawer    the drawer
+     */
+    static void apply(DraggedDrawer drawer) {
+        drawer.setOutlineProvider(CONTENT_OUTLINE);
+    }
+
+    /**
+     * Restore the default outline of the drawer and drop its elevation
+     * @param drawer    the drawer
+     */
+    static void clear(DraggedDrawer drawer) {
+        drawer.setOutlineProvider(ViewOutlineProvider.BACKGROUND);
+        drawer.setElevation(0);
+    }
+
+    /**
+     * Rebuild the outline after the drawer content was laid out
+     * @param drawer    the drawer
+     */
+    static void invalidate(DraggedDrawer drawer) {
+        drawer.invalidateOutline();
+    }
+}
@@ -0,0 +1,243 @@
+package com.kedzie.drawer;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.support.v4.view.GravityCompat;
+import android.support.v4.view.ViewCompat;
+import android.util.AttributeSet;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+
+import static com.kedzie.drawer.DraggedDrawer.*;
+
+/**
+ * {@link DragLayout} which stacks its children like a {@link android.widget.FrameLayout}.
+ * <p>
+ * Children are measured in a single pass and placed by <code>android:layout_gravity</code>.  Drawers
+ * without a gravity are placed against the edge they open from.  Each drawer is laid out directly at
+ * the position of its current offset, instead of being laid out open and moved afterwards.
+ * {@link android.widget.RelativeLayout} rules are ignored.
+ * </p>
+ * <p>
+ * It still extends {@link DragLayout}, which is a {@link android.widget.RelativeLayout}, so the drag and drawer
+ * logic is shared.  Only the RelativeLayout measure and layout passes are replaced.  Its layout params still
+ * extend {@link android.widget.RelativeLayout.LayoutParams}, so the rule attributes of children are parsed
+ * even though they are ignored.
+ * </p>
+ */
+public class FrameDragLayout extends DragLayout {
+
+    /** Match parent children of a wrap content layout, measured again once the layout size is known */
+    private final ArrayList<View> mMatchParentChildren = new ArrayList<View>(1);
+
+    public FrameDragLayout(Context context) {
+        super(context);
+    }
+
+    public FrameDragLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public FrameDragLayout(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        inflateOpenDrawers();
+        final boolean measureMatchParentChildren = MeasureSpec.getMode(widthMeasureSpec)!=MeasureSpec.EXACTLY
+                || MeasureSpec.getMode(heightMeasureSpec)!=MeasureSpec.EXACTLY;
+        mMatchParentChildren.clear();
+        int maxWidth = 0;
+        int maxHeight = 0;
+        int childState = 0;
+        for(int i=0; i<getChildCount(); i++) {
+            final View child = getChildAt(i);
+            if(child.getVisibility()==GONE)
+                continue;
+            measureChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, 0);
+            final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+            maxWidth = Math.max(maxWidth, child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin);
+            maxHeight = Math.max(maxHeight, child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin);
+            childState = combineMeasuredStates(childState, child.getMeasuredState());
+            if(measureMatchParentChildren && (lp.width==LayoutParams.MATCH_PARENT || lp.height==LayoutParams.MATCH_PARENT))
+                mMatchParentChildren.add(child);
+        }
+        maxWidth = Math.max(maxWidth + getPaddingLeft() + getPaddingRight(), getSuggestedMinimumWidth());
+        maxHeight = Math.max(maxHeight + getPaddingTop() + getPaddingBottom(), getSuggestedMinimumHeight());
+        setMeasuredDimension(resolveSizeAndState(maxWidth, widthMeasureSpec, childState),
+                resolveSizeAndState(maxHeight, heightMeasureSpec, childState << MEASURED_HEIGHT_STATE_SHIFT));
+
+        //match parent children were measured against the parent's constraint, not the final size
+        if(mMatchParentChildren.size()>1) {
+            for(int i=0; i<mMatchParentChildren.size(); i++) {
+                final View child = mMatchParentChildren.get(i);
+                final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+                final int horizontalPadding = getPaddingLeft() + getPaddingRight() + lp.leftMargin + lp.rightMargin;
+                final int verticalPadding = getPaddingTop() + getPaddingBottom() + lp.topMargin + lp.bottomMargin;
+                final int childWidthMeasureSpec = lp.width==LayoutParams.MATCH_PARENT
+                        ? MeasureSpec.makeMeasureSpec(Math.max(0, getMeasuredWidth() - horizontalPadding), MeasureSpec.EXACTLY)
+                        : getChildMeasureSpec(widthMeasureSpec, horizontalPadding, lp.width);
+                final int childHeightMeasureSpec = lp.height==LayoutParams.MATCH_PARENT
+                        ? MeasureSpec.makeMeasureSpec(Math.max(0, getMeasuredHeight() - verticalPadding), MeasureSpec.EXACTLY)
+                        : getChildMeasureSpec(heightMeasureSpec, verticalPadding, lp.height);
+                child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+            }
+        }
+        mMatchParentChildren.clear();
+    }
+
+    @Override
+    void layoutChildren(boolean changed, int l, int t, int r, int b) {
+        final int parentLeft = getPaddingLeft();
+        final int parentRight = r - l - getPaddingRight();
+        final int parentTop = getPaddingTop();
+        final int parentBottom = b - t - getPaddingBottom();
+        final int layoutDirection = ViewCompat.getLayoutDirection(this);
+
+        for(int i=0; i<getChildCount(); i++) {
+            final View child = getChildAt(i);
+            if(child.getVisibility()==GONE)
+                continue;
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            final int width = child.getMeasuredWidth();
+            final int height = child.getMeasuredHeight();
+            //resolve start and end against the layout direction
+            final int gravity = GravityCompat.getAbsoluteGravity(getChildGravity(child, lp), layoutDirection);
+
+            int left;
+            switch(gravity & Gravity.HORIZONTAL_GRAVITY_MASK) {
+                case Gravity.CENTER_HORIZONTAL:
+                    left = parentLeft + (parentRight - parentLeft - width)/2 + lp.leftMargin - lp.rightMargin;
+                    break;
+                case Gravity.RIGHT:
+                    left = parentRight - width - lp.rightMargin;
+                    break;
+                default:
+                    left = parentLeft + lp.leftMargin;
+                    break;
+            }
+            int top;
+            switch(gravity & Gravity.VERTICAL_GRAVITY_MASK) {
+                case Gravity.CENTER_VERTICAL:
+                    top = parentTop + (parentBottom - parentTop - height)/2 + lp.topMargin - lp.bottomMargin;
+                    break;
+                case Gravity.BOTTOM:
+                    top = parentBottom - height - lp.bottomMargin;
+                    break;
+                default:
+                    top = parentTop + lp.topMargin;
+                    break;
+            }
+
+            if(child instanceof DraggedDrawer) {
+                final DraggedDrawer drawer = (DraggedDrawer) child;
+                final DrawerHolder holder = getDrawerHolder(drawer);
+                if(holder!=null) {
+                    setDrawerOpenPosition(holder, left, top);
+                    //place the drawer at its offset straight away
+                    switch(drawer.getDrawerType()) {
+                        case DRAWER_LEFT:
+                        case DRAWER_RIGHT:
+                            left += getLayoutShift(drawer, lp.onScreen, width-drawer.getHandleSize());
+                            break;
+                        case DRAWER_TOP:
+                        case DRAWER_BOTTOM:
+                            top += getLayoutShift(drawer, lp.onScreen, height-drawer.getHandleSize());
+                            break;
+                    }
+                }
+            }
+            child.layout(left, top, left + width, top + height);
+        }
+    }
+
+    /**
+     * Gravity of a child.  Drawers default to the edge they open from.
+     */
+    private static int getChildGravity(View child, LayoutParams lp) {
+        if(lp.gravity!=Gravity.NO_GRAVITY)
+            return lp.gravity;
+        if(child instanceof DraggedDrawer) {
+            switch(((DraggedDrawer) child).getDrawerType()) {
+                case DRAWER_RIGHT:
+                    return Gravity.RIGHT | Gravity.TOP;
+                case DRAWER_BOTTOM:
+                    return Gravity.LEFT | Gravity.BOTTOM;
+            }
+        }
+        return Gravity.LEFT | Gravity.TOP;
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayoutParams;
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected ViewGroup.LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof DragLayout.LayoutParams
+                ? new LayoutParams((DragLayout.LayoutParams) p)
+                : p instanceof ViewGroup.MarginLayoutParams
+                ? new LayoutParams((MarginLayoutParams) p)
+                : new LayoutParams(p);
+    }
+
+    /**
+     * Drawer layout params with gravity for child placement
+     */
+    public static class LayoutParams extends DragLayout.LayoutParams {
+
+        private static final int[] LAYOUT_ATTRS = new int[] {
+                android.R.attr.layout_gravity
+        };
+
+        public int gravity = Gravity.NO_GRAVITY;
+
+        public LayoutParams(Context c, AttributeSet attrs) {
+            super(c, attrs);
+
+            final TypedArray a = c.obtainStyledAttributes(attrs, LAYOUT_ATTRS);
+            this.gravity = a.getInt(0, Gravity.NO_GRAVITY);
+            a.recycle();
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(int width, int height, int gravity) {
+            this(width, height);
+            this.gravity = gravity;
+        }
+
+        public LayoutParams(DragLayout.LayoutParams source) {
+            super(source);
+            this.onScreen = source.onScreen;
+            this.knownOpen = source.knownOpen;
+            if(source instanceof LayoutParams)
+                this.gravity = ((LayoutParams) source).gravity;
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+        }
+
+        public LayoutParams(ViewGroup.MarginLayoutParams source) {
+            super(source);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.kedzie.drawer;
+
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.view.View;
+
+/**
+ * Allocation free hit testing of a drawer's handle.
+ * <p>
+ * Points are mapped into the drawer's coordinate system with the inverse of the drawer's
+ * transformation matrix, so rotated, scaled and translated drawers are handled correctly.  The
+ * inverse is cached until the drawer's matrix changes.
+ * </p>
+ */
+class HandleHitTester {
+    private final Rect mHitRect = new Rect();
+    private final float[] mPoint = new float[2];
+    /** Copy of the drawer matrix {@link #mInverse} was computed from */
+    private final Matrix mMatrix = new Matrix();
+    private final Matrix mInverse = new Matrix();
+    private boolean mInvertible = true;
+
+    /**
+     * Is the given point within the handle?
+     * @param drawer    the drawer
+     * @param handle    the drawer's handle.  Maybe <code>null</code>
+     * @param x X position in the parent's coordinate system
+     * @param y Y position in the parent's coordinate system
+     * @return true if the point hits the handle
+     */
+    boolean isHandleHit(View drawer, View handle, int x, int y) {
+        if(handle==null) return false;
+        final float[] point = mPoint;
+        point[0] = x - drawer.getLeft();
+        point[1] = y - drawer.getTop();
+        final Matrix matrix = drawer.getMatrix();
+        if(!matrix.isIdentity()) {
+            if(!matrix.equals(mMatrix)) {
+                mMatrix.set(matrix);
+                mInvertible = matrix.invert(mInverse);
+            }
+            if(!mInvertible) return false;
+            mInverse.mapPoints(point);
+        }
+        handle.getHitRect(mHitRect);
+        return point[0]>=mHitRect.left && point[0]<mHitRect.right
+                && point[1]>=mHitRect.top && point[1]<mHitRect.bottom;
+    }
+}
@@ -0,0 +1,137 @@
+package com.kedzie.drawer;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+
+import com.kedzie.drawer.DragLayout.DrawerHolder;
+
+import static com.kedzie.drawer.DraggedDrawer.*;
+
+/**
+ * Warms up the closed drawers of a {@link DragLayout} while the main thread is idle, and captures
+ * their snapshots in snapshot mode.
+ * <p>
+ * Drawers are warmed one at a time: the drawer is prewarmed, so its content is measured, laid out
+ * and recorded by the next frame, and hidden again once the drawer itself has drawn that frame.  A drawer
+ * which isn't drawn in time, e.g. because the window is hidden, is hidden again and warming stops.  Each idle slice
+ * finishes the drawer in flight and only starts the next one if the slice is within its budget.  The budget only
+ * bounds this bookkeeping: the measure, layout and draw of a prewarmed drawer happen in the next frame and
+ * aren't counted against it.
+ * The idle handler is only registered while there are cold drawers left.
+ * </p>
+ */
+class IdleWarmer implements MessageQueue.IdleHandler {
+
+    /** Default time budget of an idle slice (ms) */
+    static final long DEFAULT_BUDGET = 4;
+    /** Maximum time a prewarmed drawer waits to be drawn (ms) */
+    private static final long DRAW_TIMEOUT = 500;
+
+    private final DragLayout mLayout;
+
+    /** Time budget of an idle slice (ms) */
+    private long mBudget = DEFAULT_BUDGET;
+    /** Whether the idle handler is registered */
+    private boolean mScheduled;
+    /** Drawer being warmed.  <code>null</code> if none. */
+    private DrawerHolder mWarming;
+
+    /** Gives up on a prewarmed drawer which isn't drawn */
+    private final Runnable mDrawTimeout = new Runnable() {
+        @Override
+        public void run() {
+            stop();
+        }
+    };
+
+    IdleWarmer(DragLayout layout) {
+        mLayout = layout;
+    }
+
+    void setBudget(long budget) {
+        mBudget = budget;
+    }
+
+    long getBudget() {
+        return mBudget;
+    }
+
+    /**
+     * Warm up cold drawers whenever the main thread is idle
+     */
+    void start() {
+        if(!mScheduled) {
+            mScheduled = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    /**
+     * Stop warming, hiding the drawer in flight.  Its warmup restarts on the next {@link #start()}.
+     */
+    void stop() {
+        cancel();
+        if(mScheduled) {
+            mScheduled = false;
+            Looper.myQueue().removeIdleHandler(this);
+        }
+    }
+
+    /**
+     * Drop a drawer which left the layout
+     * @param holder    the removed drawer
+     */
+    void forget(DrawerHolder holder) {
+        if(mWarming==holder)
+            cancel();
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if(mLayout.getDrawerState()!=STATE_IDLE || !mLayout.isReadyForWarmup()) {
+            cancel();
+            return true;
+        }
+        final long start = SystemClock.uptimeMillis();
+        if(mWarming!=null) {
+            if(mWarming.drawer.isPrewarming() && !mWarming.drawer.isPrewarmDrawn())
+                return true;
+            finish();
+            //hiding the content requested a layout, so the queue goes idle again
+            if(SystemClock.uptimeMillis()-start>=mBudget)
+                return true;
+        }
+        while(true) {
+            final DrawerHolder holder = mLayout.nextColdDrawer();
+            if(holder==null) {
+                mScheduled = false;
+                return false;
+            }
+            holder.drawer.prewarm(mLayout.isIdleWarmupInflate());
+            if(holder.drawer.isPrewarming()) {
+                mWarming = holder;
+                mLayout.postDelayed(mDrawTimeout, DRAW_TIMEOUT);
+                return true;
+            }
+            //no content, or content already shown
+            mLayout.onDrawerWarm(holder);
+        }
+    }
+
+    private void finish() {
+        final DrawerHolder holder = mWarming;
+        mWarming = null;
+        mLayout.removeCallbacks(mDrawTimeout);
+        mLayout.onDrawerWarm(holder);
+        holder.drawer.cancelPrewarm();
+    }
+
+    private void cancel() {
+        if(mWarming!=null) {
+            mLayout.removeCallbacks(mDrawTimeout);
+            mWarming.drawer.cancelPrewarm();
+            mWarming = null;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.kedzie.drawer;
+
+/**
+ * Copy-on-write set of listeners, each subscribed to a mask of event types.
+ * <p>
+ * Adding or removing a listener replaces the backing array, so dispatching iterates a stable
+ * snapshot without allocating, and listeners may add or remove listeners from their callbacks.
+ * Only used from the main thread.
+ * </p>
+ * @param <T>   listener type
+ */
+final class ListenerRegistry<T> {
+
+    /**
+     * A listener and the events it subscribed to
+     * @param <T>   listener type
+     */
+    static final class Entry<T> {
+        /** Identifies the subscription, usually the listener itself */
+        final Object key;
+        final T listener;
+        /** Mask of <code>DragLayout.EVENT_*</code> flags */
+        final int events;
+
+        Entry(Object key, T listener, int events) {
+            this.key = key;
+            this.listener = listener;
+            this.events = events;
+        }
+    }
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    @SuppressWarnings("unchecked")
+    private Entry<T>[] mEntries = EMPTY;
+    /** Union of the events of all entries */
+    private int mEvents;
+
+    /**
+     * Subscribe a listener.  A listener which is already subscribed has its events replaced.
+     * @param listener  the listener
+     * @param events    mask of events to receive
+     */
+    void add(T listener, int events) {
+        add(listener, listener, events);
+    }
+
+    /**
+     * Subscribe a listener which wraps another one.  A subscription with the same key is replaced.
+     * @param key       identifies the subscription for {@link #remove(Object)}
+     * @param listener  the listener
+     * @param events    mask of events to receive
+     */
+    @SuppressWarnings("unchecked")
+    void add(Object key, T listener, int events) {
+        final Entry<T>[] entries = mEntries;
+        final int index = indexOf(key);
+        final Entry<T>[] copy;
+        if(index>=0) {
+            copy = entries.clone();
+            copy[index] = new Entry<T>(key, listener, events);
+        } else {
+            copy = new Entry[entries.length+1];
+            System.arraycopy(entries, 0, copy, 0, entries.length);
+            copy[entries.length] = new Entry<T>(key, listener, events);
+        }
+        setEntries(copy);
+    }
+
+    /**
+     * Unsubscribe a listener
+     * @param key   the listener, or the key it was subscribed with
+     * @return true if the listener was subscribed
+     */
+    @SuppressWarnings("unchecked")
+    boolean remove(Object key) {
+        final Entry<T>[] entries = mEntries;
+        final int index = indexOf(key);
+        if(index<0)
+            return false;
+        if(entries.length==1) {
+            setEntries(EMPTY);
+            return true;
+        }
+        final Entry<T>[] copy = new Entry[entries.length-1];
+        System.arraycopy(entries, 0, copy, 0, index);
+        System.arraycopy(entries, index+1, copy, index, copy.length-index);
+        setEntries(copy);
+        return true;
+    }
+
+    /**
+     * Does any listener want an event?
+     * @param event event flag
+     * @return true if at least one listener subscribed to the event
+     */
+    boolean wants(int event) {
+        return (mEvents & event)!=0;
+    }
+
+    /**
+     * Snapshot of the subscribed listeners.  Must not be modified.
+     * @return the entries
+     */
+    Entry<T>[] entries() {
+        return mEntries;
+    }
+
+    private int indexOf(Object key) {
+        final Entry<T>[] entries = mEntries;
+        for(int i=0; i<entries.length; i++) {
+            if(entries[i].key==key)
+                return i;
+        }
+        return -1;
+    }
+
+    private void setEntries(Entry<T>[] entries) {
+        int events = 0;
+        for(int i=0; i<entries.length; i++)
+            events |= entries[i].events;
+        mEntries = entries;
+        mEvents = events;
+    }
+}
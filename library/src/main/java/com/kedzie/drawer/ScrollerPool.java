@@ -0,0 +1,49 @@
+package com.kedzie.drawer;
+
+import android.content.Context;
+import android.support.v4.widget.ScrollerCompat;
+import android.view.animation.Interpolator;
+
+/**
+ * Small pool of settle scrollers shared by all {@link DragLayout} instances.
+ * <p>
+ * A drawer only needs a scroller while it settles, so scrollers are acquired when a settle
+ * starts and returned as soon as the drawer is idle, detached or removed.  Drawers which are
+ * never touched never allocate one.  Only used from the main thread.
+ * </p>
+ */
+class ScrollerPool {
+
+    /** Maximum number of idle scrollers kept */
+    private static final int POOL_SIZE = 4;
+
+    private static final ScrollerCompat[] sPool = new ScrollerCompat[POOL_SIZE];
+    private static int sPoolCount;
+
+    private ScrollerPool() {}
+
+    /**
+     * Get an idle scroller
+     * @param context       context for a new scroller.  Only its application context is kept.
+     * @param interpolator  interpolator of a new scroller. Must be the same for all callers.
+     * @return a pooled or new scroller
+     */
+    static ScrollerCompat acquire(Context context, Interpolator interpolator) {
+        if(sPoolCount>0) {
+            final ScrollerCompat scroller = sPool[--sPoolCount];
+            sPool[sPoolCount] = null;
+            return scroller;
+        }
+        return ScrollerCompat.create(context.getApplicationContext(), interpolator);
+    }
+
+    /**
+     * Return a scroller to the pool.  Dropped if the pool is full.
+     * @param scroller  scroller which is no longer used
+     */
+    static void release(ScrollerCompat scroller) {
+        scroller.abortAnimation();
+        if(sPoolCount<POOL_SIZE)
+            sPool[sPoolCount++] = scroller;
+    }
+}
@@ -0,0 +1,66 @@
+package com.kedzie.drawer;
+
+/**
+ * Critically damped spring, evaluated from a precomputed decay table.
+ * <p>
+ * The displacement from the rest position of a critically damped spring with natural frequency
+ * <code>w</code>, initial displacement <code>x0</code> and initial velocity <code>v0</code> is
+ * <pre>x(t) = (x0 + (v0 + w*x0)*t) * e^(-w*t)</pre>
+ * The exponential is read from a table built once, so evaluating a frame costs a few
+ * multiplications and no transcendental math.
+ * </p>
+ */
+class SpringCurve {
+    /** Extent of the table in natural time units (frequency * seconds) */
+    static final float MAX_TIME = 12f;
+
+    private static final int TABLE_SIZE = 512;
+
+    /** e^-u sampled over [0, {@link #MAX_TIME}] */
+    private static final float[] DECAY = new float[TABLE_SIZE+1];
+
+    static {
+        for(int i=0; i<=TABLE_SIZE; i++)
+            DECAY[i] = (float) Math.exp(-MAX_TIME*i/TABLE_SIZE);
+    }
+
+    private SpringCurve() {}
+
+    /**
+     * Interpolated e^-u
+     * @param u natural time
+     * @return decay factor, 0 beyond {@link #MAX_TIME}
+     */
+    static float decay(float u) {
+        if(u>=MAX_TIME)
+            return 0;
+        final float index = u*TABLE_SIZE/MAX_TIME;
+        final int i = (int) index;
+        return DECAY[i] + (DECAY[i+1]-DECAY[i])*(index-i);
+    }
+
+    /**
+     * Displacement from the rest position
+     * @param displacement  initial displacement
+     * @param velocity      initial velocity (units/second)
+     * @param frequency     natural frequency (radians/second)
+     * @param t             elapsed time (seconds)
+     * @return displacement at time t
+     */
+    static float position(float displacement, float velocity, float frequency, float t) {
+        return (displacement + (velocity + frequency*displacement)*t) * decay(frequency*t);
+    }
+
+    /**
+     * Velocity of the spring
+     * @param displacement  initial displacement
+     * @param velocity      initial velocity (units/second)
+     * @param frequency     natural frequency (radians/second)
+     * @param t             elapsed time (seconds)
+     * @return velocity at time t (units/second)
+     */
+    static float velocity(float displacement, float velocity, float frequency, float t) {
+        final float b = velocity + frequency*displacement;
+        return (b - frequency*(displacement + b*t)) * decay(frequency*t);
+    }
+}
@@ -0,0 +1,255 @@
+package com.kedzie.drawer;
+
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+import static com.kedzie.drawer.DraggedDrawer.*;
+
+/**
+ * Index of the regions of a {@link DragLayout} which can start a drawer interaction.
+ * <p>
+ * Holds the visible bounds of every drawer (the handle strip of a closed drawer, the whole
+ * frame of an open one), the edge strips of edge draggable drawers grouped by drawer type, and a
+ * coarse occupancy grid over all of them.  Touches outside every region are rejected with a single
+ * bit test.  The index is invalidated by layout and drawer offset changes and lazily rebuilt
+ * on the next lookup.
+ * </p>
+ */
+class TouchRegionIndex {
+
+    /** Number of grid cells along each axis.  The whole grid fits in a <code>long</code>. */
+    private static final int GRID_SIZE = 8;
+
+    private final DragLayout mLayout;
+    private final int mEdgeSize;
+
+    /**
+     * Children which can be hit, in descending z-order.  Ends with the bottom-most drawer.
+     * Non-drawer children stacked above a drawer are kept since they hide it.
+     */
+    private View[] mViews = new View[4];
+    /** Visible bounds of {@link #mViews}, packed as left, top, right, bottom */
+    private int[] mBounds = new int[16];
+    private int mViewCount;
+
+    /** Edge draggable drawers indexed by drawer type, in descending z-order */
+    private final DraggedDrawer[][] mEdgeDrawers = new DraggedDrawer[DRAWER_BOTTOM+1][];
+    private final int[] mEdgeCounts = new int[DRAWER_BOTTOM+1];
+
+    /** One bit per grid cell, set if the cell intersects any region */
+    private long mGrid;
+    private int mWidth;
+    private int mHeight;
+    private boolean mDirty = true;
+
+    /**
+     * @param layout    the indexed layout
+     * @param edgeSize  size of the edge strips (pixels)
+     */
+    TouchRegionIndex(DragLayout layout, int edgeSize) {
+        mLayout = layout;
+        mEdgeSize = edgeSize;
+        for(int i=0; i<mEdgeDrawers.length; i++)
+            mEdgeDrawers[i] = new DraggedDrawer[1];
+    }
+
+    /**
+     * Mark the index stale.  It will be rebuilt on the next lookup.
+     */
+    void invalidate() {
+        mDirty = true;
+    }
+
+    /**
+     * Can the point start any drawer interaction?
+     * @param x X position in the layout's coordinate system
+     * @param y Y position in the layout's coordinate system
+     * @return false if the point is outside every interactive region
+     */
+    boolean isInteractive(int x, int y) {
+        ensureIndex();
+        if(x<0 || y<0 || x>=mWidth || y>=mHeight)
+            return false;
+        return (mGrid & (1L << (cellRow(y)*GRID_SIZE + cellColumn(x)))) != 0;
+    }
+
+    /**
+     * Find the drawer which is the topmost child under the given point
+     * @param x X position in the layout's coordinate system
+     * @param y Y position in the layout's coordinate system
+     * @return the drawer, or null if the topmost child is not a drawer
+     */
+    DraggedDrawer findDrawerUnder(int x, int y) {
+        if(!isInteractive(x, y))
+            return null;
+        for(int i=0; i<mViewCount; i++) {
+            final int b = i*4;
+            if(x>=mBounds[b] && y>=mBounds[b+1] && x<mBounds[b+2] && y<mBounds[b+3])
+                return mViews[i] instanceof DraggedDrawer ? (DraggedDrawer) mViews[i] : null;
+        }
+        return null;
+    }
+
+    /**
+     * Find the topmost edge draggable drawer whose edge strip contains the given point.
+     * @param x X position in the layout's coordinate system
+     * @param y Y position in the layout's coordinate system
+     * @return the drawer, or null if the point is not within the edge of any drawer
+     */
+    DraggedDrawer findEdgeDrawer(int x, int y) {
+        if(!isInteractive(x, y))
+            return null;
+        DraggedDrawer drawer = null;
+        if(x<mEdgeSize)
+            drawer = findEdgeDrawerOfType(DRAWER_LEFT, y);
+        if(drawer==null && x>=mWidth-mEdgeSize)
+            drawer = findEdgeDrawerOfType(DRAWER_RIGHT, y);
+        if(drawer==null && y<mEdgeSize)
+            drawer = findEdgeDrawerOfType(DRAWER_TOP, x);
+        if(drawer==null && y>=mHeight-mEdgeSize)
+            drawer = findEdgeDrawerOfType(DRAWER_BOTTOM, x);
+        return drawer;
+    }
+
+    /**
+     * @param type  drawer type
+     * @param position  position along the edge
+     */
+    private DraggedDrawer findEdgeDrawerOfType(int type, int position) {
+        final DraggedDrawer[] drawers = mEdgeDrawers[type];
+        final boolean horizontal = type==DRAWER_LEFT || type==DRAWER_RIGHT;
+        for(int i=0; i<mEdgeCounts[type]; i++) {
+            final DraggedDrawer drawer = drawers[i];
+            final int start = horizontal ? visualTop(drawer) : visualLeft(drawer);
+            final int end = start + (horizontal ? drawer.getHeight() : drawer.getWidth());
+            if(position>start && position<end)
+                return drawer;
+        }
+        return null;
+    }
+
+    private void ensureIndex() {
+        if(!mDirty)
+            return;
+        mDirty = false;
+        mWidth = mLayout.getWidth();
+        mHeight = mLayout.getHeight();
+        mGrid = 0;
+        mViewCount = 0;
+        for(int i=0; i<mEdgeCounts.length; i++) {
+            for(int j=0; j<mEdgeCounts[i]; j++)
+                mEdgeDrawers[i][j] = null;
+            mEdgeCounts[i] = 0;
+        }
+        if(mWidth<=0 || mHeight<=0)
+            return;
+
+        int count = 0;
+        for(int i=mLayout.getChildCount()-1; i>=0; i--) {
+            final View child = mLayout.getChildAt(i);
+            if(child.getVisibility()!=View.VISIBLE)
+                continue;
+            final boolean isDrawer = child instanceof DraggedDrawer;
+            final int x = visualLeft(child);
+            final int y = visualTop(child);
+            final int left = Math.max(0, x);
+            final int top = Math.max(0, y);
+            final int right = Math.min(mWidth, x + child.getWidth());
+            final int bottom = Math.min(mHeight, y + child.getHeight());
+            if(left<right && top<bottom) {
+                addView(count++, child, left, top, right, bottom);
+                if(isDrawer) {
+                    mViewCount = count;
+                    markGrid(left, top, right, bottom);
+                }
+            }
+            if(isDrawer && ((DraggedDrawer) child).isEdgeDraggable())
+                addEdgeDrawer((DraggedDrawer) child);
+        }
+        //drop children below the bottom-most drawer and stale references
+        for(int i=mViewCount; i<mViews.length; i++)
+            mViews[i] = null;
+    }
+
+    private void addView(int index, View child, int left, int top, int right, int bottom) {
+        if(index==mViews.length) {
+            final View[] views = new View[index*2];
+            System.arraycopy(mViews, 0, views, 0, index);
+            mViews = views;
+            final int[] bounds = new int[index*8];
+            System.arraycopy(mBounds, 0, bounds, 0, index*4);
+            mBounds = bounds;
+        }
+        mViews[index] = child;
+        final int b = index*4;
+        mBounds[b] = left;
+        mBounds[b+1] = top;
+        mBounds[b+2] = right;
+        mBounds[b+3] = bottom;
+    }
+
+    private void addEdgeDrawer(DraggedDrawer drawer) {
+        final int type = drawer.getDrawerType();
+        final int count = mEdgeCounts[type];
+        if(count==mEdgeDrawers[type].length) {
+            final DraggedDrawer[] drawers = new DraggedDrawer[count*2];
+            System.arraycopy(mEdgeDrawers[type], 0, drawers, 0, count);
+            mEdgeDrawers[type] = drawers;
+        }
+        mEdgeDrawers[type][count] = drawer;
+        mEdgeCounts[type] = count+1;
+        //the same bounds as findEdgeDrawerOfType, so the grid never rejects a touch the lookup accepts
+        final int left = visualLeft(drawer);
+        final int top = visualTop(drawer);
+        switch(type) {
+            case DRAWER_LEFT:
+                markGrid(0, top, mEdgeSize, top+drawer.getHeight());
+                break;
+            case DRAWER_RIGHT:
+                markGrid(mWidth-mEdgeSize, top, mWidth, top+drawer.getHeight());
+                break;
+            case DRAWER_TOP:
+                markGrid(left, 0, left+drawer.getWidth(), mEdgeSize);
+                break;
+            case DRAWER_BOTTOM:
+                markGrid(left, mHeight-mEdgeSize, left+drawer.getWidth(), mHeight);
+                break;
+        }
+    }
+
+    /**
+     * Visual left of a child, including its translation
+     */
+    private static int visualLeft(View child) {
+        return child.getLeft() + (int) ViewCompat.getTranslationX(child);
+    }
+
+    /**
+     * Visual top of a child, including its translation
+     */
+    private static int visualTop(View child) {
+        return child.getTop() + (int) ViewCompat.getTranslationY(child);
+    }
+
+    private void markGrid(int left, int top, int right, int bottom) {
+        left = Math.max(0, left);
+        top = Math.max(0, top);
+        right = Math.min(mWidth, right);
+        bottom = Math.min(mHeight, bottom);
+        if(left>=right || top>=bottom)
+            return;
+        final int lastColumn = cellColumn(right-1);
+        final int lastRow = cellRow(bottom-1);
+        for(int row=cellRow(top); row<=lastRow; row++)
+            for(int column=cellColumn(left); column<=lastColumn; column++)
+                mGrid |= 1L << (row*GRID_SIZE + column);
+    }
+
+    private int cellColumn(int x) {
+        return x*GRID_SIZE/mWidth;
+    }
+
+    private int cellRow(int y) {
+        return y*GRID_SIZE/mHeight;
+    }
+}
@@ -0,0 +1,89 @@
+package com.kedzie.drawer;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+/**
+ * Single {@link ComponentCallbacks2} shared by all attached {@link DragLayout} instances, which
+ * forwards memory pressure to each of them.
+ * <p>
+ * Registered with the application while at least one layout is attached, so the application only
+ * holds one callback however many layouts there are.  {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW}
+ * and the levels above it release the layout trim resources except {@link DragLayout#RELEASE_CONTENT},
+ * which is only released from {@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN} and on
+ * {@link #onLowMemory()}, while dropping content can't cause jank.  Only used from the main thread.
+ * </p>
+ */
+class TrimCallbacks implements ComponentCallbacks2 {
+
+    private static final TrimCallbacks sInstance = new TrimCallbacks();
+
+    /** Attached layouts.  Each layout keeps its index to be removed in constant time. */
+    private static DragLayout[] sLayouts = new DragLayout[2];
+    private static int sLayoutCount;
+    /** Application the callback is registered with.  <code>null</code> while no layout is attached. */
+    private static Context sApplication;
+
+    private TrimCallbacks() {}
+
+    /**
+     * Forward memory pressure to a layout
+     * @param layout    layout attached to its window
+     */
+    static void register(DragLayout layout) {
+        if(layout.mTrimIndex>=0)
+            return;
+        if(sLayoutCount==sLayouts.length) {
+            final DragLayout[] layouts = new DragLayout[sLayoutCount*2];
+            System.arraycopy(sLayouts, 0, layouts, 0, sLayoutCount);
+            sLayouts = layouts;
+        }
+        layout.mTrimIndex = sLayoutCount;
+        sLayouts[sLayoutCount++] = layout;
+        if(sApplication==null) {
+            sApplication = layout.getContext().getApplicationContext();
+            sApplication.registerComponentCallbacks(sInstance);
+        }
+    }
+
+    /**
+     * Stop forwarding memory pressure to a layout
+     * @param layout    layout detached from its window
+     */
+    static void unregister(DragLayout layout) {
+        final int index = layout.mTrimIndex;
+        if(index<0)
+            return;
+        final int last = --sLayoutCount;
+        sLayouts[index] = sLayouts[last];
+        sLayouts[index].mTrimIndex = index;
+        sLayouts[last] = null;
+        layout.mTrimIndex = -1;
+        if(sLayoutCount==0) {
+            sApplication.unregisterComponentCallbacks(sInstance);
+            sApplication = null;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if(level<TRIM_MEMORY_RUNNING_LOW)
+            return;
+        final boolean content = level>=TRIM_MEMORY_UI_HIDDEN;
+        for(int i=sLayoutCount-1; i>=0; i--) {
+            final DragLayout layout = sLayouts[i];
+            final int resources = layout.getTrimResources();
+            layout.releaseClosedDrawers(content ? resources : resources & ~DragLayout.RELEASE_CONTENT);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        for(int i=sLayoutCount-1; i>=0; i--)
+            sLayouts[i].releaseClosedDrawers(sLayouts[i].getTrimResources());
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {}
+}